@@ -6,11 +6,13 @@ import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.EnableAspectJAutoProxy;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @MapperScan("com.hmdp.mapper")
 @SpringBootApplication
 @Slf4j
 @EnableAspectJAutoProxy(exposeProxy = true)
+@EnableScheduling
 public class HmDianPingApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,223 @@
+package com.hmdp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 缓存相关配置，对应 application.yaml 中的 hmdp.cache
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hmdp.cache")
+public class CacheProperties {
+
+    /**
+     * 进程内一级缓存
+     */
+    private Local local = new Local();
+
+    /**
+     * 缓存重建时等待结果的最长时间，单位毫秒，超时后降级返回过期副本
+     */
+    private long rebuildWaitMillis = 3000;
+
+    /**
+     * 店铺类型列表检查 Redis 中版本号的最小间隔，单位毫秒，决定了类型变更传播到其他节点的最大延迟
+     */
+    private long shopTypeVersionCheckMillis = 3000;
+
+    /**
+     * 逻辑过期缓存按缓存名称配置的提前刷新系数 beta，未配置或小于等于 0 时不提前刷新，
+     * 越大越早刷新，例如 shop: 1.0
+     */
+    private Map<String, Double> earlyRefreshBeta = new HashMap<>();
+
+    /**
+     * 逻辑过期缓存的异步重建线程池
+     */
+    private Rebuild rebuild = new Rebuild();
+
+    /**
+     * 防止缓存穿透的布隆过滤器
+     */
+    private Bloom bloom = new Bloom();
+
+    /**
+     * 缓存值的编码格式
+     */
+    private Codec codec = new Codec();
+
+    /**
+     * 逻辑过期缓存的预热
+     */
+    private WarmUp warmUp = new WarmUp();
+
+    /**
+     * 热点 key 探测与本地副本
+     */
+    private HotKey hotKey = new HotKey();
+
+    @Data
+    public static class Local {
+        /**
+         * 最大条目数，超出后按 W-TinyLFU 淘汰
+         */
+        private long maximumSize = 10000;
+        /**
+         * 写入后的存活时间，单位秒
+         */
+        private long expireSeconds = 60;
+        /**
+         * 过期后继续保留的时间，单位秒，仅用于重建超时时的降级
+         */
+        private long staleSeconds = 300;
+    }
+
+    @Data
+    public static class Rebuild {
+        /**
+         * 重建线程数
+         */
+        private int threads = 10;
+        /**
+         * 排队任务的上限
+         */
+        private int queueCapacity = 1000;
+        /**
+         * 队列满时的处理方式：drop 丢弃，继续返回旧数据；caller-runs 由调用线程执行
+         */
+        private String rejectionPolicy = "drop";
+        /**
+         * 关闭时等待排队任务完成的时间，单位秒
+         */
+        private long shutdownTimeoutSeconds = 10;
+    }
+
+    @Data
+    public static class Bloom {
+        /**
+         * 预计元素个数，与误判率一起决定位数组大小
+         */
+        private long expectedInsertions = 1000000;
+        /**
+         * 期望的误判率
+         */
+        private double fpp = 0.01;
+        /**
+         * 全量重建的时间，用于清理已删除的数据
+         */
+        private String rebuildCron = "0 0 4 * * ?";
+    }
+
+    @Data
+    public static class Codec {
+        /**
+         * 写入格式：json 或 binary
+         */
+        private String writeFormat = "json";
+        /**
+         * 迁移模式，读取时同时接受 JSON 与二进制两种格式
+         */
+        private boolean migration = true;
+        /**
+         * 字符串字段超过该字节数时使用 LZ4 压缩
+         */
+        private int compressThreshold = 256;
+    }
+
+    @Data
+    public static class WarmUp {
+        /**
+         * 是否在启动时预热
+         */
+        private boolean enabled = true;
+        /**
+         * 预热访问量最高的前 n 条数据
+         */
+        private int topN = 1000;
+        /**
+         * 每批回源的条数
+         */
+        private int batchSize = 100;
+        /**
+         * 并行回源的批次数
+         */
+        private int parallelism = 4;
+        /**
+         * 定时预热的时间
+         */
+        private String cron = "0 */10 * * * ?";
+        /**
+         * 剩余逻辑有效期不足该秒数时提前刷新
+         */
+        private long refreshAheadSeconds = 300;
+        /**
+         * 本地访问计数写入 Redis 的间隔，单位毫秒
+         */
+        private long statsFlushMillis = 10000;
+        /**
+         * 访问分数衰减的时间
+         */
+        private String statsDecayCron = "0 0 * * * ?";
+        /**
+         * 每次衰减后保留的分数比例
+         */
+        private double statsDecayFactor = 0.5;
+        /**
+         * 衰减的互斥时间，单位秒，需小于衰减周期
+         */
+        private long statsDecayLockSeconds = 600;
+        /**
+         * 访问统计最多保留的条数
+         */
+        private int statsMaxSize = 10000;
+    }
+
+    @Data
+    public static class HotKey {
+        private boolean enabled = true;
+        /**
+         * 读操作的采样比例
+         */
+        private double sampleRate = 0.1;
+        /**
+         * 滑动窗口的桶数，窗口长度为 buckets * bucketMillis
+         */
+        private int buckets = 10;
+        /**
+         * 每个桶的时间片，单位毫秒
+         */
+        private long bucketMillis = 1000;
+        /**
+         * 窗口内估算访问次数达到该值即视为热点
+         */
+        private long threshold = 5000;
+        /**
+         * 成为热点后至少保持的时间，单位毫秒，期间持续命中阈值会自动延长
+         */
+        private long holdMillis = 30000;
+        /**
+         * 本地副本的存活时间，单位毫秒，决定了热点 key 在其他节点上的最大不一致时间
+         */
+        private long pinMillis = 1000;
+        /**
+         * 本地副本的最大条目数
+         */
+        private long maxPinned = 10000;
+        /**
+         * 每个桶最多统计的 key 个数
+         */
+        private int maxKeysPerBucket = 100000;
+        /**
+         * 参与探测的 key 前缀，锁、库存等要求强一致的 key 不能加入
+         */
+        private List<String> includePrefixes = new ArrayList<>(Arrays.asList("cache:", "blog:liked:"));
+    }
+}
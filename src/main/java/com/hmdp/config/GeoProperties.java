@@ -0,0 +1,74 @@
+package com.hmdp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 附近店铺查询相关配置，对应 application.yaml 中的 hmdp.geo
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hmdp.geo")
+public class GeoProperties {
+
+    /**
+     * 附近店铺的查询半径，单位米
+     */
+    private double radiusMeters = 5000;
+
+    /**
+     * 进程内的网格索引
+     */
+    private Index index = new Index();
+
+    /**
+     * Redis 中 shop:geo:{typeId} 的全量重建
+     */
+    private Loader loader = new Loader();
+
+    /**
+     * 按 GeoHash 格子缓存附近店铺的候选列表
+     */
+    private CellCache cellCache = new CellCache();
+
+    @Data
+    public static class Index {
+        /**
+         * 关闭后只使用 Redis GEO 查询
+         */
+        private boolean enabled = true;
+        /**
+         * 网格的边长，单位度，0.01 度约为 1 公里
+         */
+        private double cellDegrees = 0.01;
+        /**
+         * 定期全量重建，兜底修复漏掉的变更通知
+         */
+        private String reloadCron = "0 30 3 * * ?";
+    }
+
+    @Data
+    public static class Loader {
+        /**
+         * 并行读取的分片数
+         */
+        private int parallelism = 4;
+        /**
+         * 每个分片的主键区间长度
+         */
+        private int chunkSize = 1000;
+        /**
+         * 定期全量重建的时间
+         */
+        private String rebuildCron = "0 0 3 * * ?";
+    }
+
+    @Data
+    public static class CellCache {
+        /**
+         * GeoHash 精度，6 位约为 1.2km x 0.6km，精度越低命中率越高、候选列表越长
+         */
+        private int precision = 6;
+    }
+}
@@ -18,10 +18,11 @@ public class MvcConfig implements WebMvcConfigurer {
     public void addInterceptors(InterceptorRegistry registry) {
         registry.addInterceptor(new LoginInterceptor()).excludePathPatterns(
                 "/shop/**",
-                "/voucher/**",
-                "/shop-type/**",
+                "/voucher/list/**",
+                "/shop-type/list",
                 "/upload/**",
                 "/blog/hot",
+                "/blog/hot/scroll",
                 "/user/code",
                 "/user/login"
         ).order(1);
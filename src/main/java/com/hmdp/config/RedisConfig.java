@@ -0,0 +1,32 @@
+package com.hmdp.config;
+
+import com.hmdp.utils.HotKeyDetector;
+import com.hmdp.utils.HotKeyRedisTemplate;
+import com.hmdp.utils.HotKeyStringRedisTemplate;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+public class RedisConfig {
+    @Bean
+    public StringRedisTemplate stringRedisTemplate(RedisConnectionFactory connectionFactory, HotKeyDetector hotKeyDetector) {
+        // 替换自动配置的 StringRedisTemplate，读操作经过热点 key 探测
+        return new HotKeyStringRedisTemplate(connectionFactory, hotKeyDetector);
+    }
+
+    @Bean
+    public RedisTemplate<String, byte[]> byteRedisTemplate(RedisConnectionFactory connectionFactory, HotKeyDetector hotKeyDetector) {
+        // key 为字符串，value 为原始字节，供缓存的二进制编码使用
+        RedisTemplate<String, byte[]> template = new HotKeyRedisTemplate<>(hotKeyDetector);
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.setHashKeySerializer(RedisSerializer.string());
+        template.setHashValueSerializer(RedisSerializer.byteArray());
+        return template;
+    }
+}
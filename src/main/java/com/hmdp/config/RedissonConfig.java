@@ -1,20 +1,26 @@
 package com.hmdp.config;
+import cn.hutool.core.util.StrUtil;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.config.Config;
+import org.redisson.config.SingleServerConfig;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class RedissonConfig {
     @Bean
-    public RedissonClient redissonClient(){
-        //配置
+    public RedissonClient redissonClient(RedisProperties redisProperties){
+        //配置，与 spring.redis 使用同一个Redis
         Config config = new Config();
-        config.useSingleServer().setAddress("redis://127.0.0.1:6379");
+        SingleServerConfig server = config.useSingleServer()
+                .setAddress("redis://" + redisProperties.getHost() + ":" + redisProperties.getPort())
+                .setDatabase(redisProperties.getDatabase());
+        if (StrUtil.isNotBlank(redisProperties.getPassword())) {
+            server.setPassword(redisProperties.getPassword());
+        }
         //创建对象
         return Redisson.create(config);
-
-
     }
 }
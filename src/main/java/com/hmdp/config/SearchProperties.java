@@ -0,0 +1,34 @@
+package com.hmdp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 店铺名称搜索相关配置，对应 application.yaml 中的 hmdp.search
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hmdp.search")
+public class SearchProperties {
+
+    /**
+     * 是否启用进程内倒排索引，关闭或未加载完成时使用数据库模糊查询
+     */
+    private boolean enabled = true;
+
+    /**
+     * 定期全量重建的 cron 表达式
+     */
+    private String reloadCron = "0 40 3 * * ?";
+
+    /**
+     * 店铺名称中词项的权重
+     */
+    private double nameWeight = 3;
+
+    /**
+     * 店铺地址中词项的权重
+     */
+    private double addressWeight = 1;
+}
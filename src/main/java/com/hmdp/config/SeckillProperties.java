@@ -0,0 +1,166 @@
+package com.hmdp.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 秒杀下单相关配置，对应 application.yaml 中的 hmdp.seckill
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "hmdp.seckill")
+public class SeckillProperties {
+
+    /**
+     * 订单消息队列 stream:orders 的消费
+     */
+    private Stream stream = new Stream();
+
+    /**
+     * 本地售罄标记的有效期，单位毫秒，过期后重新到 Redis 校验一次，补货通知丢失时也能自行恢复
+     */
+    private long soldOutRecheckMillis = 5000;
+
+    /**
+     * 下单请求的准入控制
+     */
+    private Admission admission = new Admission();
+
+    /**
+     * 秒杀数据的预加载与归档
+     */
+    private Preload preload = new Preload();
+
+    /**
+     * Redis与数据库的对账
+     */
+    private Reconcile reconcile = new Reconcile();
+
+    /**
+     * 允许调用运维写接口的用户id，为空时所有用户都不能调用
+     */
+    private Set<Long> adminUserIds = new HashSet<>();
+
+    @Data
+    public static class Stream {
+        /**
+         * 消费者组名称
+         */
+        private String group = "order-group";
+        /**
+         * 每个节点的消费线程数
+         */
+        private int consumers = 2;
+        /**
+         * 每批写入数据库的最大订单数
+         */
+        private int batchSize = 100;
+        /**
+         * 收到一批中第一条订单后最多等待的时间，单位毫秒，到时未凑满也提交
+         */
+        private long maxWaitMillis = 50;
+        /**
+         * 没有消息时阻塞等待的时间，单位毫秒
+         */
+        private long blockMillis = 2000;
+        /**
+         * 消息投递后超过该时间仍未确认，视为消费者已宕机，由其他消费者认领，单位毫秒
+         */
+        private long reclaimIdleMillis = 60000;
+        /**
+         * 检查未确认消息的间隔，单位毫秒
+         */
+        private long reclaimIntervalMillis = 30000;
+        /**
+         * 超过该投递次数仍失败的消息转入死信队列
+         */
+        private int maxDeliveries = 5;
+        /**
+         * 队列的近似最大长度，必须远大于可能的积压量，避免未消费的消息被裁剪
+         */
+        private long maxLength = 1000000;
+    }
+
+    @Data
+    public static class Admission {
+        private boolean enabled = true;
+        /**
+         * 每个节点每张券每秒放行的请求数上限
+         */
+        private double ratePerSecond = 500;
+        /**
+         * 每个节点每张券允许的突发请求数上限
+         */
+        private double burst = 500;
+        /**
+         * 按剩余库存计算的放行数：剩余库存乘以该系数，再限制在 [minPermits, 上限] 之间
+         */
+        private double stockMultiplier = 2;
+        /**
+         * 放行数的下限，售罄后仍放行少量请求以便发现补货
+         */
+        private double minPermits = 5;
+        /**
+         * 按剩余库存调整令牌桶的间隔，单位毫秒
+         */
+        private long resizeMillis = 1000;
+        /**
+         * 整个集群每张券每秒放行的请求数，小于等于 0 时不启用集群限流
+         */
+        private double clusterRatePerSecond = 2000;
+        /**
+         * 集群令牌桶的容量
+         */
+        private double clusterBurst = 2000;
+    }
+
+    @Data
+    public static class Preload {
+        private boolean enabled = true;
+        /**
+         * 扫描间隔，单位毫秒
+         */
+        private long intervalMillis = 60000;
+        /**
+         * 开始时间在该窗口内的秒杀券提前加载，单位分钟
+         */
+        private long windowMinutes = 30;
+        /**
+         * 结束超过该时间后归档，留出时间让订单队列消费完，单位分钟
+         */
+        private long archiveDelayMinutes = 10;
+        /**
+         * 归档时只回看该时间内结束的秒杀券，单位小时
+         */
+        private long archiveLookbackHours = 24;
+        /**
+         * 归档摘要 seckill:archive:{voucherId} 的保留天数
+         */
+        private long archiveTtlDays = 7;
+    }
+
+    @Data
+    public static class Reconcile {
+        private boolean enabled = true;
+        /**
+         * 是否修复不一致，为 false 时只统计（dry-run）
+         */
+        private boolean apply = false;
+        /**
+         * 对账间隔，单位毫秒
+         */
+        private long intervalMillis = 60000;
+        /**
+         * 分块读取订单和已下单用户集合的大小
+         */
+        private int chunkSize = 1000;
+        /**
+         * 订单缺失或总量不一致持续超过该时间才认定，需要大于订单消息认领和重试的总时长，单位毫秒
+         */
+        private long confirmMillis = 600000;
+    }
+}
@@ -40,16 +40,26 @@ public class BlogController {
         UserDTO user = UserHolder.getUser();
         // 根据用户查询
         Page<Blog> page = blogService.query()
-                .eq("user_id", user.getId()).page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
+                .eq("user_id", user.getId()).page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE, false));
         // 获取当前页数据
         List<Blog> records = page.getRecords();
         return Result.ok(records);
     }
 
+    @GetMapping("/of/me/scroll")
+    public Result scrollMyBlog(@RequestParam(value = "cursor", required = false) String cursor) {
+        return blogService.scrollBlogOfUser(UserHolder.getUser().getId(), cursor);
+    }
+
     @GetMapping("/hot")
     public Result queryHotBlog(@RequestParam(value = "current", defaultValue = "1") Integer current) {
        return blogService.queryHotBlog(current);
     }
+
+    @GetMapping("/hot/scroll")
+    public Result scrollHotBlog(@RequestParam(value = "cursor", required = false) String cursor) {
+        return blogService.scrollHotBlog(cursor);
+    }
     @GetMapping("/{id}")
     public Result queryBlogById(@PathVariable("id") Long id){
         return blogService.queryBlogById(id);
@@ -64,10 +74,17 @@ public class BlogController {
             @RequestParam(value = "current",defaultValue = "1") Integer current,
             @RequestParam("id") Long id){
         Page<Blog> page = blogService.query()
-                .eq("user_id", id).page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
+                .eq("user_id", id).page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE, false));
         List<Blog> records = page.getRecords();
         return Result.ok(records);
     }
+
+    @GetMapping("/of/user/scroll")
+    public Result scrollBlogByUserId(
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam("id") Long id){
+        return blogService.scrollBlogOfUser(id, cursor);
+    }
     @GetMapping("/of/follow")
     public Result queryBlogFollow(
             @RequestParam("lastId") Long max,
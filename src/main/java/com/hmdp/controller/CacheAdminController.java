@@ -0,0 +1,106 @@
+package com.hmdp.controller;
+
+
+import com.hmdp.dto.Result;
+import com.hmdp.utils.AdminChecker;
+import com.hmdp.utils.CacheMetrics;
+import com.hmdp.utils.CacheRebuildExecutor;
+import com.hmdp.utils.CacheWarmer;
+import com.hmdp.utils.HotKeyDetector;
+import com.hmdp.utils.LocalCache;
+import com.hmdp.utils.ShopGeoIndex;
+import com.hmdp.utils.ShopGeoLoader;
+import com.hmdp.utils.ShopSearchIndex;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>
+ * 缓存运维接口
+ * </p>
+ */
+@RestController
+@RequestMapping("/admin/cache")
+public class CacheAdminController {
+
+    @Resource
+    private CacheMetrics cacheMetrics;
+    @Resource
+    private LocalCache localCache;
+    @Resource
+    private CacheWarmer cacheWarmer;
+    @Resource
+    private CacheRebuildExecutor cacheRebuildExecutor;
+    @Resource
+    private HotKeyDetector hotKeyDetector;
+    @Resource
+    private ShopGeoIndex shopGeoIndex;
+    @Resource
+    private ShopGeoLoader shopGeoLoader;
+    @Resource
+    private ShopSearchIndex shopSearchIndex;
+    @Resource
+    private AdminChecker adminChecker;
+
+    /**
+     * 查询各级缓存的命中统计
+     * @return 按 key 前缀分组的命中数据
+     */
+    @GetMapping("/stats")
+    public Result stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tiers", cacheMetrics.snapshot());
+        stats.put("local", localCache.stats());
+        stats.put("rebuild", cacheRebuildExecutor.stats());
+        stats.put("geoIndex", shopGeoIndex.stats());
+        stats.put("geoRedis", shopGeoLoader.stats());
+        stats.put("shopSearch", shopSearchIndex.stats());
+        return Result.ok(stats);
+    }
+
+    /**
+     * 查询最近一次缓存预热的进度
+     */
+    @GetMapping("/warm-up")
+    public Result warmUpProgress() {
+        return Result.ok(cacheWarmer.progress());
+    }
+
+    /**
+     * 手动触发一次缓存预热，异步执行，通过 GET /admin/cache/warm-up 查看进度
+     */
+    @PostMapping("/warm-up")
+    public Result warmUp() {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        cacheWarmer.trigger();
+        return Result.ok();
+    }
+
+    /**
+     * 查询当前的热点 key，热点 key 的读取结果在各节点本地保留很短的时间
+     */
+    @GetMapping("/hot-keys")
+    public Result hotKeys() {
+        return Result.ok(hotKeyDetector.hotKeys());
+    }
+
+    /**
+     * 全量重建 Redis 中的店铺 GEO 数据
+     * @return 写入的店铺数，-1 表示其他节点正在重建
+     */
+    @PostMapping("/geo/rebuild")
+    public Result rebuildGeo() {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        return Result.ok(shopGeoLoader.rebuild());
+    }
+}
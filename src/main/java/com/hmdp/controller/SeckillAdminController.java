@@ -0,0 +1,88 @@
+package com.hmdp.controller;
+
+
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.dto.Result;
+import com.hmdp.utils.AdminChecker;
+import com.hmdp.utils.SeckillAdmission;
+import com.hmdp.utils.SeckillOrderConsumer;
+import com.hmdp.utils.SeckillPreloader;
+import com.hmdp.utils.SeckillReconciler;
+import com.hmdp.utils.SoldOutRegistry;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * <p>
+ * 秒杀运维接口
+ * </p>
+ */
+@RestController
+@RequestMapping("/admin/seckill")
+public class SeckillAdminController {
+
+    @Resource
+    private SeckillOrderConsumer seckillOrderConsumer;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+    @Resource
+    private SeckillAdmission seckillAdmission;
+    @Resource
+    private SeckillPreloader seckillPreloader;
+    @Resource
+    private SeckillReconciler seckillReconciler;
+    @Resource
+    private SeckillProperties seckillProperties;
+    @Resource
+    private AdminChecker adminChecker;
+
+    /**
+     * 查询订单消息队列的消费情况
+     * @return 队列长度、待确认数、消费延迟及各项计数，以及每张券的放行、拒绝速率
+     */
+    @GetMapping("/stats")
+    public Result stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("orderStream", seckillOrderConsumer.stats());
+        stats.put("soldOut", soldOutRegistry.stats());
+        stats.put("admission", seckillAdmission.stats());
+        stats.put("preload", seckillPreloader.stats());
+        stats.put("reconcile", seckillReconciler.stats());
+        return Result.ok(stats);
+    }
+
+    /**
+     * 立即执行一次秒杀数据的预加载与归档
+     */
+    @PostMapping("/preload")
+    public Result preload() {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        CompletableFuture.runAsync(seckillPreloader::run);
+        return Result.ok();
+    }
+
+    /**
+     * 立即对账一次
+     * @param apply 是否修复，默认只统计；配置 hmdp.seckill.reconcile.apply 为 false 时忽略，只统计
+     * @return 每张秒杀券的对账结果
+     */
+    @PostMapping("/reconcile")
+    public Result reconcile(@RequestParam(value = "apply", defaultValue = "false") boolean apply) {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        Map<Long, Map<String, Object>> reports =
+                seckillReconciler.reconcile(apply && seckillProperties.getReconcile().isApply());
+        return reports == null ? Result.fail("对账正在进行中") : Result.ok(reports);
+    }
+}
@@ -1,15 +1,13 @@
 package com.hmdp.controller;
 
 
-import cn.hutool.core.util.StrUtil;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.Shop;
 import com.hmdp.service.IShopService;
-import com.hmdp.utils.SystemConstants;
 import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
+import java.util.List;
 
 /**
  * <p>
@@ -36,6 +34,16 @@ public class ShopController {
         return shopService.Result(id);
     }
 
+    /**
+     * 根据id批量查询商铺信息
+     * @param ids 商铺id列表，最多100个
+     * @return 商铺列表，顺序与ids一致
+     */
+    @GetMapping("/batch")
+    public Result queryShopByIds(@RequestParam("ids") List<Long> ids) {
+        return shopService.queryShopByIds(ids);
+    }
+
     /**
      * 新增商铺信息
      * @param shop 商铺数据
@@ -43,10 +51,8 @@ public class ShopController {
      */
     @PostMapping
     public Result saveShop(@RequestBody Shop shop) {
-        // 写入数据库
-        shopService.save(shop);
-        // 返回店铺id
-        return Result.ok(shop.getId());
+        // 写入数据库，返回店铺id
+        return shopService.saveShop(shop);
     }
 
     /**
@@ -77,6 +83,22 @@ public class ShopController {
       return shopService.queryShopByType(typeId,current,x,y);
     }
 
+    /**
+     * 根据商铺类型按距离游标分页查询附近商铺
+     * @param typeId 商铺类型
+     * @param cursor 上一页返回的游标，首页不传
+     * @return 商铺列表及下一页的游标
+     */
+    @GetMapping("/of/type/scroll")
+    public Result scrollShopByType(
+            @RequestParam("typeId") Integer typeId,
+            @RequestParam(value = "x", required = false) Double x,
+            @RequestParam(value = "y", required = false) Double y,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return shopService.scrollShopByType(typeId, x, y, cursor);
+    }
+
     /**
      * 根据商铺名称关键字分页查询商铺信息
      * @param name 商铺名称关键字
@@ -88,11 +110,20 @@ public class ShopController {
             @RequestParam(value = "name", required = false) String name,
             @RequestParam(value = "current", defaultValue = "1") Integer current
     ) {
-        // 根据类型分页查询
-        Page<Shop> page = shopService.query()
-                .like(StrUtil.isNotBlank(name), "name", name)
-                .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
-        // 返回数据
-        return Result.ok(page.getRecords());
+        return shopService.queryShopByName(name, current);
+    }
+
+    /**
+     * 根据商铺名称、地址关键字按相关度游标分页查询商铺信息
+     * @param name 关键字
+     * @param cursor 上一页返回的游标，首页为空
+     * @return 商铺列表和下一页的游标
+     */
+    @GetMapping("/of/name/scroll")
+    public Result scrollShopByName(
+            @RequestParam("name") String name,
+            @RequestParam(value = "cursor", required = false) String cursor
+    ) {
+        return shopService.scrollShopByName(name, cursor);
     }
 }
@@ -2,14 +2,16 @@ package com.hmdp.controller;
 
 
 import com.hmdp.dto.Result;
+import com.hmdp.dto.ShopTypeSnapshot;
 import com.hmdp.entity.ShopType;
 import com.hmdp.service.IShopTypeService;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.RestController;
+import com.hmdp.utils.AdminChecker;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
 
 import javax.annotation.Resource;
-import java.util.List;
 
 /**
  * <p>
@@ -24,13 +26,50 @@ import java.util.List;
 public class ShopTypeController {
     @Resource
     private IShopTypeService typeService;
+    @Resource
+    private AdminChecker adminChecker;
 
+    /**
+     * 直接写出快照中序列化好的响应，以响应内容的摘要作为 ETag，未变化时返回 304
+     */
     @GetMapping("list")
-    public Result queryTypeList() {
-//        List<ShopType> typeList = typeService
-//                .query().orderByAsc("sort").list();
-//        return Result.ok(typeList);
-       return typeService.queryTypeList();
+    public ResponseEntity<byte[]> queryTypeList(
+            @RequestHeader(value = "If-None-Match", required = false) String ifNoneMatch) {
+        ShopTypeSnapshot snapshot = typeService.typeListSnapshot();
+        String etag = snapshot.getEtag();
+        if (etag.equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .body(snapshot.getBody());
+    }
+
+    /**
+     * 新增、修改、删除店铺类型，仅限管理员
+     */
+    @PostMapping
+    public Result saveType(@RequestBody ShopType shopType) {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        return typeService.saveType(shopType);
+    }
+
+    @PutMapping
+    public Result updateType(@RequestBody ShopType shopType) {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        return typeService.updateType(shopType);
+    }
 
+    @DeleteMapping("/{id}")
+    public Result deleteType(@PathVariable("id") Long id) {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        return typeService.deleteType(id);
     }
 }
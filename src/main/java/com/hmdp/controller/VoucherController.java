@@ -4,6 +4,7 @@ package com.hmdp.controller;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.Voucher;
 import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.AdminChecker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
 
@@ -23,6 +24,8 @@ import javax.annotation.Resource;
 public class VoucherController {
     @Resource
     private IVoucherService voucherService;
+    @Resource
+    private AdminChecker adminChecker;
 
     /**
      * 新增普通券
@@ -47,6 +50,20 @@ public class VoucherController {
         return Result.ok(voucher.getId());
     }
 
+    /**
+     * 秒杀券补货，仅限管理员
+     * @param id 优惠券id
+     * @param count 增加的库存
+     * @return 无
+     */
+    @PutMapping("seckill/{id}/stock")
+    public Result addSeckillStock(@PathVariable("id") Long id, @RequestParam("count") Integer count) {
+        if (!adminChecker.isAdmin()) {
+            return Result.fail("无权限");
+        }
+        return voucherService.addSeckillStock(id, count);
+    }
+
     /**
      * 查询店铺的优惠券列表
      * @param shopId 店铺id
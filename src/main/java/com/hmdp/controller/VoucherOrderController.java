@@ -1,14 +1,20 @@
 package com.hmdp.controller;
 
 
+import com.hmdp.dto.RateLimited;
 import com.hmdp.dto.Result;
 import com.hmdp.service.IVoucherOrderService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * <p>
  *  前端控制器
@@ -22,9 +28,19 @@ import org.springframework.web.bind.annotation.RestController;
 public class VoucherOrderController {
     @Autowired
     private IVoucherOrderService voucherOrderService;
+    /**
+     * 秒杀下单，被准入控制拒绝时返回 429 和 Retry-After 响应头
+     */
     @PostMapping("seckill/{id}")
-    public Result seckillVoucher(@PathVariable("id") Long voucherId) {
-
-        return voucherOrderService.seckillVoucher(voucherId);
+    public ResponseEntity<Result> seckillVoucher(@PathVariable("id") Long voucherId) {
+        Result result = voucherOrderService.seckillVoucher(voucherId);
+        if (Boolean.FALSE.equals(result.getSuccess()) && result.getData() instanceof RateLimited) {
+            long retryAfterMillis = ((RateLimited) result.getData()).getRetryAfterMillis();
+            long retryAfterSeconds = Math.max(1, TimeUnit.MILLISECONDS.toSeconds(retryAfterMillis + 999));
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                    .body(result);
+        }
+        return ResponseEntity.ok(result);
     }
 }
@@ -0,0 +1,17 @@
+package com.hmdp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 附近店铺查询的候选店铺及其坐标，按 GeoHash 格子缓存，距离在本地根据请求坐标重新计算
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GeoCandidate {
+    private Long id;
+    private Double x;
+    private Double y;
+}
@@ -0,0 +1,15 @@
+package com.hmdp.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 被准入控制拒绝的请求，作为失败结果的数据返回，retryAfterMillis 为建议的重试间隔
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RateLimited {
+    private long retryAfterMillis;
+}
@@ -0,0 +1,28 @@
+package com.hmdp.dto;
+
+import com.hmdp.entity.ShopType;
+import lombok.Getter;
+import org.springframework.util.DigestUtils;
+
+import java.util.List;
+
+/**
+ * 店铺类型列表的不可变快照，body 为序列化好的响应，直接写出无需再次序列化
+ */
+@Getter
+public class ShopTypeSnapshot {
+    private final long version;
+    private final List<ShopType> list;
+    private final byte[] body;
+    /**
+     * 响应内容的摘要，版本号在 Redis 清空或故障切换后会从 0 重新开始，不能直接作为 ETag
+     */
+    private final String etag;
+
+    public ShopTypeSnapshot(long version, List<ShopType> list, byte[] body) {
+        this.version = version;
+        this.list = list;
+        this.body = body;
+        this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+    }
+}
@@ -1,13 +0,0 @@
-package com.hmdp.entity;
-
-import lombok.Data;
-
-import java.time.LocalDateTime;
-
-@Data
-public class RedisData {
-
-    private LocalDateTime expireTime;
-    private Object data;
-
-}
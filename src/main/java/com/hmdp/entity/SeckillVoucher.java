@@ -37,6 +37,11 @@ public class SeckillVoucher implements Serializable {
      */
     private Integer stock;
 
+    /**
+     * Redis 库存分桶数，1 表示不分桶
+     */
+    private Integer buckets;
+
     /**
      * 创建时间
      */
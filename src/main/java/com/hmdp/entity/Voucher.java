@@ -78,6 +78,12 @@ public class Voucher implements Serializable {
     @TableField(exist = false)
     private Integer stock;
 
+    /**
+     * 秒杀库存的分桶数，超热门的秒杀券可以分桶减少单个库存 key 的竞争，为空或 1 表示不分桶
+     */
+    @TableField(exist = false)
+    private Integer buckets;
+
     /**
      * 生效时间
      */
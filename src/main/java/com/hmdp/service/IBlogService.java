@@ -18,6 +18,18 @@ public interface IBlogService extends IService<Blog> {
 
     Result queryHotBlog(Integer current);
 
+    /**
+     * 按点赞数游标分页查询热门笔记
+     * @param cursor 上一页返回的游标，首页为空
+     */
+    Result scrollHotBlog(String cursor);
+
+    /**
+     * 按发布时间倒序游标分页查询用户的笔记
+     * @param cursor 上一页返回的游标，首页为空
+     */
+    Result scrollBlogOfUser(Long userId, String cursor);
+
     Result likeBlog(Long id);
 
     Result queryBlogLikes(Long id);
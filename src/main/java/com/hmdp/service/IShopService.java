@@ -4,6 +4,9 @@ import com.hmdp.dto.Result;
 import com.hmdp.entity.Shop;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.time.Duration;
+import java.util.List;
+
 /**
  * <p>
  *  服务类
@@ -16,7 +19,37 @@ public interface IShopService extends IService<Shop> {
 
     public Result Result(Long id);
 
+    public Result saveShop(Shop shop);
+
     public Result update(Shop shop);
 
     Result queryShopByType(Integer typeId, Integer current, Double x, Double y);
+
+    /**
+     * 按距离由近到远游标分页查询附近的店铺
+     * @param cursor 上一页返回的游标，首页为空
+     */
+    Result scrollShopByType(Integer typeId, Double x, Double y, String cursor);
+
+    /**
+     * 按名称和地址关键字分页查询店铺，有关键字时按相关度排序
+     */
+    Result queryShopByName(String name, Integer current);
+
+    /**
+     * 按相关度游标分页搜索店铺
+     * @param cursor 上一页返回的游标，首页为空
+     */
+    Result scrollShopByName(String name, String cursor);
+
+    /**
+     * 批量查询店铺，结果按 ids 的顺序返回，不存在的店铺会被忽略
+     */
+    Result queryShopByIds(List<Long> ids);
+
+    /**
+     * 预热店铺缓存，只回源缓存中缺失或即将逻辑过期的店铺
+     * @return 回源数据库的条数
+     */
+    int warmUpCache(List<Long> ids, Duration refreshAhead);
 }
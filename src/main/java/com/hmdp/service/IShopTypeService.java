@@ -1,6 +1,7 @@
 package com.hmdp.service;
 
 import com.hmdp.dto.Result;
+import com.hmdp.dto.ShopTypeSnapshot;
 import com.hmdp.entity.ShopType;
 import com.baomidou.mybatisplus.extension.service.IService;
 
@@ -16,5 +17,18 @@ public interface IShopTypeService extends IService<ShopType> {
 
     public Result queryTypeList();
 
+    /**
+     * 当前的类型列表快照，包含序列化好的响应
+     */
+    ShopTypeSnapshot typeListSnapshot();
+
+    /**
+     * 新增、修改、删除店铺类型，完成后递增版本号，所有节点在下一次检查时刷新
+     */
+    Result saveType(ShopType shopType);
+
+    Result updateType(ShopType shopType);
+
+    Result deleteType(Long id);
 
 }
@@ -1,9 +1,12 @@
 package com.hmdp.service;
 
 import com.hmdp.dto.Result;
+import com.hmdp.entity.SeckillVoucher;
 import com.hmdp.entity.VoucherOrder;
 import com.baomidou.mybatisplus.extension.service.IService;
 
+import java.util.List;
+
 /**
  * <p>
  *  服务类
@@ -14,7 +17,41 @@ import com.baomidou.mybatisplus.extension.service.IService;
  */
 public interface IVoucherOrderService extends IService<VoucherOrder> {
 
+    /**
+     * 秒杀下单
+     * @return 成功时 data 为订单id；被准入控制拒绝时 data 为 RateLimited，带建议的重试等待毫秒数，其他失败时 data 为空
+     */
     Result seckillVoucher(Long voucherId);
 
-    Result creatVoucherOrder(Long voucherId);
+    /**
+     * 将通过秒杀资格校验的订单写入数据库，由订单消息队列的消费者调用，重复投递时保持幂等
+     * @throws IllegalStateException 数据库库存不足，订单不写入，消息应保留待重试或转入死信队列
+     */
+    void creatVoucherOrder(VoucherOrder voucherOrder);
+
+    /**
+     * 在一个事务中批量写入订单：每张优惠券合并扣减一次库存，订单批量插入
+     * @return 实际写入的订单数，重复的订单会被跳过
+     * @throws IllegalStateException 某张优惠券的库存不足，整批回滚
+     * @throws org.springframework.dao.DuplicateKeyException 订单已被并发写入，整批回滚，由调用方逐条写入
+     */
+    int creatVoucherOrders(List<VoucherOrder> voucherOrders);
+
+    /**
+     * 秒杀开始前把库存、已下单用户和秒杀券信息加载到Redis并校验，已存在的不覆盖，
+     * 秒杀券信息与数据库不一致时重新加载
+     * @return 是否有数据被重新加载
+     */
+    boolean preloadSeckill(SeckillVoucher voucher);
+
+    /**
+     * 把秒杀券信息加载到本节点的本地缓存
+     */
+    void warmSeckillVoucher(Long voucherId);
+
+    /**
+     * 秒杀结束后把剩余库存和下单人数记录到 seckill:archive:{voucherId}，并删除库存、已下单用户、限流和秒杀券缓存
+     * @return 是否执行了归档，已归档过时返回 false
+     */
+    boolean archiveSeckill(SeckillVoucher voucher);
 }
@@ -17,4 +17,9 @@ public interface IVoucherService extends IService<Voucher> {
     Result queryVoucherOfShop(Long shopId);
 
     void addSeckillVoucher(Voucher voucher);
+
+    /**
+     * 秒杀券补货，同时增加数据库和Redis中的库存，并清除各节点的售罄标记
+     */
+    Result addSeckillStock(Long voucherId, Integer count);
 }
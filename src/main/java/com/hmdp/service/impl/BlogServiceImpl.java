@@ -4,6 +4,7 @@ import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.BooleanUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hmdp.dto.CursorResult;
 import com.hmdp.dto.Result;
 import com.hmdp.dto.ScrollResult;
 import com.hmdp.dto.UserDTO;
@@ -15,6 +16,11 @@ import com.hmdp.service.IBlogService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.service.IFollowService;
 import com.hmdp.service.IUserService;
+import com.hmdp.utils.BloomFilterManager;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.CacheSpec;
+import com.hmdp.utils.CacheStrategy;
+import com.hmdp.utils.CursorUtils;
 import com.hmdp.utils.SystemConstants;
 import com.hmdp.utils.UserHolder;
 import org.springframework.data.redis.core.StringRedisTemplate;
@@ -29,6 +35,8 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static com.hmdp.utils.RedisConstants.BLOG_LIKED_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_BLOG_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_BLOG_TTL;
 import static com.hmdp.utils.RedisConstants.FEED_KEY;
 import static net.sf.jsqlparser.util.validation.metadata.NamedObject.user;
 
@@ -49,11 +57,27 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
     private IFollowService followService;
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private BloomFilterManager bloomFilterManager;
+
+    /**
+     * 笔记缓存，返回前会填充作者和点赞状态，因此不使用本地缓存共享同一个对象
+     */
+    private final CacheSpec<Long, Blog> blogCacheSpec = CacheSpec.<Long, Blog>builder()
+            .keyPrefix(CACHE_BLOG_KEY)
+            .type(Blog.class)
+            .filter(id -> bloomFilterManager.mightContainBlog(id))
+            .dbFallback(this::getById)
+            .ttl(CACHE_BLOG_TTL)
+            .strategy(CacheStrategy.MUTEX)
+            .build();
 
     @Override
     public Result queryBlogById(Long id) {
         //查询blog
-        Blog blog = getById(id);
+        Blog blog = cacheClient.get(blogCacheSpec, id);
         if(blog == null){
             return Result.fail("博客不存在");
         }
@@ -90,7 +114,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         // 根据用户查询
         Page<Blog> page = query()
                 .orderByDesc("liked")
-                .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE));
+                .page(new Page<>(current, SystemConstants.MAX_PAGE_SIZE, false));
         // 获取当前页数据
         List<Blog> records = page.getRecords();
         // 查询用户
@@ -101,6 +125,66 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         return Result.ok(records);
     }
 
+    @Override
+    public Result scrollHotBlog(String cursor) {
+        //1. 解析游标：上一页最后一条的点赞数和id
+        Integer liked = null;
+        Long id = null;
+        try {
+            String[] parts = CursorUtils.decode(cursor, 2);
+            if (parts != null) {
+                liked = Integer.parseInt(parts[0]);
+                id = Long.parseLong(parts[1]);
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.fail("无效的游标");
+        }
+        //2. 按 (liked, id) 降序从游标之后开始查询，走 idx_liked 索引，不查询总数
+        Integer lastLiked = liked;
+        Long lastId = id;
+        List<Blog> records = query()
+                .and(lastLiked != null, w -> w.lt("liked", lastLiked)
+                        .or(o -> o.eq("liked", lastLiked).lt("id", lastId)))
+                .orderByDesc("liked", "id")
+                .last("limit " + SystemConstants.MAX_PAGE_SIZE)
+                .list();
+        //3. 查询用户
+        records.forEach(blog -> {
+            this.queryBlogUser(blog);
+            this.isBlogLiked(blog);
+        });
+        String next = null;
+        if (records.size() == SystemConstants.MAX_PAGE_SIZE) {
+            Blog last = records.get(records.size() - 1);
+            next = CursorUtils.encode(last.getLiked() == null ? 0 : last.getLiked(), last.getId());
+        }
+        return Result.ok(new CursorResult(records, next));
+    }
+
+    @Override
+    public Result scrollBlogOfUser(Long userId, String cursor) {
+        //1. 解析游标：上一页最后一条的id
+        Long lastId = null;
+        try {
+            String[] parts = CursorUtils.decode(cursor, 1);
+            if (parts != null) {
+                lastId = Long.parseLong(parts[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.fail("无效的游标");
+        }
+        //2. 按id降序从游标之后开始查询，走 idx_user_id 索引，不查询总数
+        List<Blog> records = query()
+                .eq("user_id", userId)
+                .lt(lastId != null, "id", lastId)
+                .orderByDesc("id")
+                .last("limit " + SystemConstants.MAX_PAGE_SIZE)
+                .list();
+        String next = records.size() == SystemConstants.MAX_PAGE_SIZE
+                ? CursorUtils.encode(records.get(records.size() - 1).getId()) : null;
+        return Result.ok(new CursorResult(records, next));
+    }
+
     @Override
     public Result likeBlog(Long id) {
         //1.获取登录用户
@@ -115,6 +199,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
             if(isSuccess){
                 // zadd key value score
                 stringRedisTemplate.opsForZSet().add(key,userId.toString(),System.currentTimeMillis());
+                cacheClient.evict(CACHE_BLOG_KEY, id);
             }
         }else{
             //4.已点赞
@@ -122,6 +207,7 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
             boolean isSuccess = update().setSql("liked = liked - 1").eq("id", id).update();
             if(isSuccess){
                 stringRedisTemplate.opsForZSet().remove(key,userId.toString());
+                cacheClient.evict(CACHE_BLOG_KEY, id);
             }
         }
         return Result.ok();
@@ -158,6 +244,8 @@ public class BlogServiceImpl extends ServiceImpl<BlogMapper, Blog> implements IB
         if(!isSuccess){
             return Result.fail("新增笔记失败");
         }
+        // 加入布隆过滤器
+        bloomFilterManager.addBlog(blog.getId());
         // 查询笔记作者的所有粉丝,follow表 select * from tb_follow where follow_user_id = ?
         List<Follow> follows = followService.query()
                 .eq("follow_user_id", user.getId())
@@ -1,31 +1,42 @@
 package com.hmdp.service.impl;
 
-import cn.hutool.core.util.BooleanUtil;
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.lang.TypeReference;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONObject;
-import cn.hutool.json.JSONUtil;
-import com.baomidou.mybatisplus.core.toolkit.StringUtils;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.hmdp.config.GeoProperties;
+import com.hmdp.dto.CursorResult;
+import com.hmdp.dto.GeoCandidate;
 import com.hmdp.dto.Result;
-import com.hmdp.entity.RedisData;
 import com.hmdp.entity.Shop;
 import com.hmdp.mapper.ShopMapper;
 import com.hmdp.service.IShopService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import com.hmdp.utils.RedisConstants;
+import com.hmdp.utils.AccessRecorder;
+import com.hmdp.utils.BloomFilterManager;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.CacheSpec;
+import com.hmdp.utils.CacheStrategy;
+import com.hmdp.utils.CacheWarmer;
+import com.hmdp.utils.CursorUtils;
+import com.hmdp.utils.GeoGridIndex;
+import com.hmdp.utils.GeoHashUtils;
+import com.hmdp.utils.InvertedIndex;
+import com.hmdp.utils.ShopGeoIndex;
+import com.hmdp.utils.ShopGeoLoader;
+import com.hmdp.utils.ShopSearchIndex;
 import com.hmdp.utils.SystemConstants;
-import io.netty.util.internal.StringUtil;
 import org.springframework.data.geo.*;
 import org.springframework.data.redis.connection.RedisGeoCommands;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
-import java.time.LocalDateTime;
+import java.time.Duration;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.hmdp.utils.RedisConstants.*;
 
@@ -42,113 +53,90 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
 
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private BloomFilterManager bloomFilterManager;
+    @Resource
+    private AccessRecorder accessRecorder;
+    @Resource
+    private ShopGeoIndex shopGeoIndex;
+    @Resource
+    private ShopGeoLoader shopGeoLoader;
+    @Resource
+    private GeoProperties geoProperties;
+    @Resource
+    private ShopSearchIndex shopSearchIndex;
+
+    /**
+     * 店铺缓存：逻辑过期解决缓存击穿，未预热的店铺首次访问时加锁回源，空值解决缓存穿透，并开启本地缓存；
+     * 过期时间带随机抖动并按 hmdp.cache.early-refresh-beta.shop 提前刷新，避免集中过期
+     */
+    private final CacheSpec<Long, Shop> shopCacheSpec = CacheSpec.<Long, Shop>builder()
+            .keyPrefix(CACHE_SHOP_KEY)
+            .type(Shop.class)
+            .filter(id -> bloomFilterManager.mightContainShop(id))
+            .dbFallback(this::getById)
+            .batchFallback(ids -> listByIds(ids).stream().collect(Collectors.toMap(Shop::getId, Function.identity())))
+            .ttl(CACHE_SHOP_TTL)
+            .ttlJitter(0.2)
+            .strategy(CacheStrategy.LOGICAL_EXPIRE)
+            .localCache(true)
+            .build();
+
+    /**
+     * 附近店铺的候选列表，按 (类型, GeoHash 格子) 缓存，id 为 typeId:geohash，
+     * 同一格子内的请求共用一份候选，距离在本地根据请求坐标重新计算
+     */
+    private final CacheSpec<String, List<GeoCandidate>> geoCellCacheSpec = CacheSpec.<String, List<GeoCandidate>>builder()
+            .keyPrefix(CACHE_SHOP_GEO_CELL_KEY)
+            .type(new TypeReference<List<GeoCandidate>>() {}.getType())
+            .dbFallback(this::loadGeoCandidates)
+            .ttl(CACHE_SHOP_GEO_CELL_TTL)
+            .unit(TimeUnit.SECONDS)
+            .strategy(CacheStrategy.MUTEX)
+            .localCache(true)
+            .build();
+
     @Override
     public Result Result(Long id) {
-        // 解决缓存穿透问题
-        //return queryWithPassThrough(id);
-        // 利用互斥锁解决缓存击穿问题
-        Shop shop = queryWithMutex(id);
+        Shop shop = cacheClient.get(shopCacheSpec, id);
         if(shop == null){
             return Result.fail("商品信息不存在");
         }
+        //记录访问次数，作为缓存预热的依据
+        accessRecorder.record(CacheWarmer.SHOP, id);
         return Result.ok(shop);
     }
-    public Shop queryWithMutex(Long id){
-        String key = CACHE_SHOP_KEY + id;
-        //1.在Redis中查询商品缓存
-        String shopJson = stringRedisTemplate.opsForValue().get(key);
-        //2.判断是否存在
-        if(StringUtils.isNotBlank(shopJson)){
-            // 3.存在，String转为Json
-            Shop shop = JSONUtil.toBean(shopJson, Shop.class);
-            return shop;
-        }
-        //判断命中的是否是空值,空字符串
-        if(shopJson != null){
-            return null;
-        }
-        //4.利用互斥锁解决缓存击穿
-        String lockKey = "lock:shop:" + id;
-        Shop shop = null;
-        try {
-            //4.1 未命中，尝试获取互斥锁
-            boolean isLock = tryLock(lockKey);
-            //4.2 判断是否获取锁
-            if(!isLock){
-                //4.3 获取失败，休眠
-                Thread.sleep(50);
-                return queryWithMutex(id);
-            }
-            //4.4 获取成功，根据id查询数据库
-            //5.从数据库中查询
-            shop = getById(id);
-            //6.不存在，返回错误
-            if(shop==null){
-                //Redis中存入空对象
-                stringRedisTemplate.opsForValue().set(key,"",CACHE_NULL_TTL,TimeUnit.MINUTES);
-                return null;
-            }
-            //7.存在，将数据存入Redis   设置缓存时间为30分钟
-            stringRedisTemplate.opsForValue().set(key,JSONUtil.toJsonStr(shop),CACHE_SHOP_TTL, TimeUnit.MINUTES);
-        } catch (InterruptedException e) {
-            throw new RuntimeException(e);
-        } finally {
-            //8.释放互斥锁
-           unLock(lockKey);
-        }
-        //9.返回数据
-        return shop;
-    }
 
-    public Result queryWithPassThrough(Long id){
-        String key = CACHE_SHOP_KEY + id;
-        //1.在Redis中查询商品缓存
-        String shopJson = stringRedisTemplate.opsForValue().get(key);
-        //2.判断Redis中的数据中是否存在实值
-        if(StringUtils.isNotBlank(shopJson)){
-            // 存在，String转为Json
-            Shop shop = JSONUtil.toBean(shopJson, Shop.class);
-            return Result.ok(shop);
-        }
-        //判断命中的是否是空字符串
-        if(shopJson != null){
-            return Result.fail("商品信息不存在");
-        }
-        //3.不存在,根据id查询
-        //4.从数据库中查询
-        Shop shop = getById(id);
-        //5.不存在，返回错误
-        if(shop==null){
-            //Redis中存入空对象
-            stringRedisTemplate.opsForValue().set(key,"",CACHE_NULL_TTL,TimeUnit.MINUTES);
-
-            return Result.fail("商家信息不存在");
-        }
-        //6.存在，将数据存入Redis   设置缓存时间为30分钟
-        stringRedisTemplate.opsForValue().set(key,JSONUtil.toJsonStr(shop),CACHE_SHOP_TTL, TimeUnit.MINUTES);
-        //7.返回
-        return Result.ok(shop);
+    @Override
+    public Result saveShop(Shop shop) {
+        //1. 写入数据库
+        save(shop);
+        //2. 加入布隆过滤器
+        bloomFilterManager.addShop(shop.getId());
+        //3. 写入Redis GEO，并刷新附近店铺索引和名称搜索索引
+        shopGeoLoader.sync(null, shop);
+        shopSearchIndex.refresh(shop.getId());
+        shopGeoIndex.shopChanged(shop.getId());
+        return Result.ok(shop.getId());
     }
 
-    //尝试获取锁的方法
-    private boolean tryLock(String key){
-        Boolean isLock = stringRedisTemplate.opsForValue().setIfAbsent(key, "1", 10, TimeUnit.SECONDS);
-        return BooleanUtil.isTrue(isLock);
-    }
-    //释放锁
-    private void unLock(String key){
-        stringRedisTemplate.delete(key);
-    }
     @Override
     public Result update(Shop shop) {
         Long id = shop.getId();
         if(id==null){
             return Result.fail("信息为空");
         }
-        //1. 更新数据库
+        //1. 更新数据库，保留更新前的类型与坐标用于同步GEO数据
+        Shop before = getById(id);
         updateById(shop);
-        //2. 删除缓存
-        stringRedisTemplate.delete(CACHE_SHOP_KEY + id);
+        //2. 删除缓存，并通知所有节点失效本地缓存
+        cacheClient.evict(CACHE_SHOP_KEY, id);
+        //3. 同步Redis GEO，类型变更时从原类型中移除，并刷新附近店铺索引和名称搜索索引
+        shopGeoLoader.sync(before, getById(id));
+        shopSearchIndex.refresh(id);
+        shopGeoIndex.shopChanged(id);
         return Result.ok("更新成功");
     }
 
@@ -159,96 +147,226 @@ public class ShopServiceImpl extends ServiceImpl<ShopMapper, Shop> implements IS
             // 不需要根据坐标查询，根据类型分页查询
             Page<Shop> page = query()
                     .eq("type_id", typeId)
-                    .page(new Page<>(current, SystemConstants.DEFAULT_PAGE_SIZE));
+                    .page(new Page<>(current, SystemConstants.DEFAULT_PAGE_SIZE, false));
             // 返回数据
             return Result.ok(page.getRecords());
         }
         //2.  计算分页参数
         int from = (current - 1) * SystemConstants.DEFAULT_PAGE_SIZE;
         int end = current * SystemConstants.DEFAULT_PAGE_SIZE;
-        String key = SHOP_GEO_KEY + typeId;
-        //3. 查询Redis，按照距离排序、分页
-        GeoResults<RedisGeoCommands.GeoLocation<String>> results = stringRedisTemplate.opsForGeo().
-                radius(key, new Circle(new Point(x, y), 5000),
-                        RedisGeoCommands.
-                                GeoRadiusCommandArgs.
-                                newGeoRadiusArgs().includeCoordinates().limit(end)
-                );
-        //4. 解析出id
-        if(results == null){
-            return Result.ok();
-        }
-        List<GeoResult<RedisGeoCommands.GeoLocation<String>>> list = results.getContent();
-        if(list.size() <= from){
+        //3. 坐标归并到GeoHash格子，读取格子的候选店铺
+        String cell = GeoHashUtils.encode(x, y, geoProperties.getCellCache().getPrecision());
+        List<GeoCandidate> candidates = cacheClient.get(geoCellCacheSpec, typeId + ":" + cell);
+        if(candidates == null || candidates.isEmpty()){
             return Result.ok(Collections.emptyList());
         }
-        // 4.1 截取from - end的部分
-        List<Long> ids = new ArrayList<>(list.size());
-        Map<String,Distance> distanceMap = new HashMap<>(list.size());
-        list.stream().skip(from).forEach(result ->{
-            String shopIdStr = result.getContent().getName();
-            Distance distance = result.getDistance();
-            ids.add(Long.valueOf(shopIdStr));
-            distanceMap.put(shopIdStr,distance);
+        //4. 根据请求坐标计算精确距离，排序后截取from - end的部分
+        double radius = geoProperties.getRadiusMeters();
+        List<GeoGridIndex.Hit> hits = new ArrayList<>();
+        for (GeoCandidate candidate : candidates) {
+            double distance = GeoGridIndex.distance(x, y, candidate.getX(), candidate.getY());
+            if (distance <= radius) {
+                hits.add(new GeoGridIndex.Hit(candidate.getId(), distance));
+            }
+        }
+        if(hits.size() <= from){
+            return Result.ok(Collections.emptyList());
+        }
+        hits.sort(Comparator.comparingDouble(GeoGridIndex.Hit::getDistance).thenComparingLong(GeoGridIndex.Hit::getId));
+        List<Long> ids = new ArrayList<>(end - from);
+        Map<String,Distance> distanceMap = new HashMap<>(end - from);
+        hits.stream().skip(from).limit(end - from).forEach(hit ->{
+            ids.add(hit.getId());
+            distanceMap.put(String.valueOf(hit.getId()), new Distance(hit.getDistance()));
         });
-        //5. 根据id查询店铺
-        String idStr = StrUtil.join(",",ids);
-        List<Shop> shops = query().in("id", ids).last("order by field(id," + idStr + ")").list();
+        //5. 根据id批量查询店铺缓存，结果与id顺序一致
+        List<Shop> shops = withDistance(ids, distanceMap);
         //6. 返回
-        for (Shop shop : shops) {
+        return Result.ok(shops);
+    }
+
+    @Override
+    public Result scrollShopByType(Integer typeId, Double x, Double y, String cursor) {
+        if (x == null || y == null) {
+            // 没有坐标时按id游标分页
+            return scrollShopById(typeId, cursor);
+        }
+        //1. 解析游标：上一页最后一条的距离、id，以及已返回的条数
+        GeoGridIndex.Hit after = null;
+        int offset = 0;
+        try {
+            String[] parts = CursorUtils.decode(cursor, 3);
+            if (parts != null) {
+                after = new GeoGridIndex.Hit(Long.parseLong(parts[1]), Double.parseDouble(parts[0]));
+                offset = Integer.parseInt(parts[2]);
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.fail("无效的游标");
+        }
+        int size = SystemConstants.DEFAULT_PAGE_SIZE;
+        //2. 优先查询进程内网格索引，每页只处理本页附近的数据
+        List<GeoGridIndex.Hit> hits = shopGeoIndex.search(typeId.longValue(), x, y, after, size);
+        if (hits == null) {
+            //2.1 索引不可用，降级为Redis GEO查询
+            hits = searchGeoFromRedis(typeId, x, y, offset, size);
+        }
+        //3. 查询店铺并设置距离
+        List<Long> ids = new ArrayList<>(hits.size());
+        Map<String, Distance> distanceMap = new HashMap<>(hits.size());
+        for (GeoGridIndex.Hit hit : hits) {
+            ids.add(hit.getId());
+            distanceMap.put(String.valueOf(hit.getId()), new Distance(hit.getDistance()));
+        }
+        List<Shop> shops = withDistance(ids, distanceMap);
+        //4. 不足一页说明没有下一页
+        String next = null;
+        if (hits.size() == size) {
+            GeoGridIndex.Hit last = hits.get(hits.size() - 1);
+            next = CursorUtils.encode(last.getDistance(), last.getId(), offset + hits.size());
+        }
+        return Result.ok(new CursorResult(shops, next));
+    }
+
+    private Result scrollShopById(Integer typeId, String cursor) {
+        //1. 解析游标：上一页最后一条的id
+        Long lastId = null;
+        try {
+            String[] parts = CursorUtils.decode(cursor, 1);
+            if (parts != null) {
+                lastId = Long.parseLong(parts[0]);
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.fail("无效的游标");
+        }
+        //2. 从游标之后开始查询，走 foreign_key_type 索引，不查询总数
+        int size = SystemConstants.DEFAULT_PAGE_SIZE;
+        List<Shop> shops = query()
+                .eq("type_id", typeId)
+                .gt(lastId != null, "id", lastId)
+                .orderByAsc("id")
+                .last("limit " + size)
+                .list();
+        String next = shops.size() == size ? CursorUtils.encode(shops.get(shops.size() - 1).getId()) : null;
+        return Result.ok(new CursorResult(shops, next));
+    }
+
+    /**
+     * 查询格子的候选店铺：以格子中心为圆心，半径加上中心到格子顶点的距离，
+     * 保证格子内任意坐标半径范围内的店铺都在候选中
+     */
+    private List<GeoCandidate> loadGeoCandidates(String typeAndCell) {
+        String[] parts = typeAndCell.split(":");
+        double[] bounds = GeoHashUtils.bounds(parts[1]);
+        double centerX = (bounds[0] + bounds[2]) / 2;
+        double centerY = (bounds[1] + bounds[3]) / 2;
+        double margin = GeoGridIndex.distance(centerX, centerY, bounds[2], bounds[3]);
+        GeoResults<RedisGeoCommands.GeoLocation<String>> results = stringRedisTemplate.opsForGeo().radius(
+                SHOP_GEO_KEY + parts[0],
+                new Circle(new Point(centerX, centerY), geoProperties.getRadiusMeters() + margin),
+                RedisGeoCommands.GeoRadiusCommandArgs.newGeoRadiusArgs().includeCoordinates());
+        if (results == null) {
+            return Collections.emptyList();
+        }
+        return results.getContent().stream().map(result -> {
+            Point point = result.getContent().getPoint();
+            return new GeoCandidate(Long.valueOf(result.getContent().getName()), point.getX(), point.getY());
+        }).collect(Collectors.toList());
+    }
+
+    private List<GeoGridIndex.Hit> searchGeoFromRedis(Integer typeId, Double x, Double y, int offset, int size) {
+        GeoResults<RedisGeoCommands.GeoLocation<String>> results = stringRedisTemplate.opsForGeo().radius(
+                SHOP_GEO_KEY + typeId,
+                new Circle(new Point(x, y), geoProperties.getRadiusMeters()),
+                RedisGeoCommands.GeoRadiusCommandArgs.newGeoRadiusArgs().includeDistance().sortAscending().limit(offset + size));
+        if (results == null) {
+            return Collections.emptyList();
+        }
+        List<GeoGridIndex.Hit> hits = new ArrayList<>(size);
+        results.getContent().stream().skip(offset).forEach(result -> hits.add(new GeoGridIndex.Hit(
+                Long.parseLong(result.getContent().getName()), result.getDistance().getValue())));
+        return hits;
+    }
+
+    /**
+     * 根据id批量查询店铺缓存并设置距离，结果与id顺序一致
+     */
+    private List<Shop> withDistance(List<Long> ids, Map<String, Distance> distanceMap) {
+        List<Shop> shops = new ArrayList<>(ids.size());
+        for (Shop cached : cacheClient.multiGet(shopCacheSpec, ids)) {
+            // 缓存中的对象会被多个请求共享，复制后再设置距离
+            Shop shop = BeanUtil.copyProperties(cached, Shop.class);
             shop.setDistance(distanceMap.get(shop.getId().toString()).getValue());
+            shops.add(shop);
         }
-        return Result.ok(shops);
+        return shops;
+    }
+
+    @Override
+    public Result queryShopByName(String name, Integer current) {
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        // 页码从1开始，非法页码按第一页处理
+        current = current == null || current < 1 ? 1 : current;
+        //1. 有关键字时优先查询倒排索引，页码之前的结果在索引内跳过，页码很大时按 long 计算避免溢出
+        int limit = (int) Math.min((long) current * size, Integer.MAX_VALUE);
+        List<InvertedIndex.Hit> hits = StrUtil.isBlank(name) ? null
+                : shopSearchIndex.search(name, null, limit);
+        if (hits == null) {
+            //1.1 没有关键字或索引不可用，降级为数据库查询
+            Page<Shop> page = query()
+                    .like(StrUtil.isNotBlank(name), "name", name)
+                    .page(new Page<>(current, size, false));
+            return Result.ok(page.getRecords());
+        }
+        List<Long> ids = hits.stream().skip((long) (current - 1) * size)
+                .map(InvertedIndex.Hit::getId).collect(Collectors.toList());
+        //2. 根据id批量查询店铺缓存，结果与id顺序一致
+        return Result.ok(cacheClient.multiGet(shopCacheSpec, ids));
+    }
+
+    @Override
+    public Result scrollShopByName(String name, String cursor) {
+        if (StrUtil.isBlank(name)) {
+            return Result.fail("缺少关键字");
+        }
+        //1. 解析游标：上一页最后一条的得分和id
+        InvertedIndex.Hit after = null;
+        try {
+            String[] parts = CursorUtils.decode(cursor, 2);
+            if (parts != null) {
+                after = new InvertedIndex.Hit(Long.parseLong(parts[1]), Double.parseDouble(parts[0]));
+            }
+        } catch (IllegalArgumentException e) {
+            return Result.fail("无效的游标");
+        }
+        int size = SystemConstants.MAX_PAGE_SIZE;
+        //2. 查询倒排索引，按相关度排序
+        List<InvertedIndex.Hit> hits = shopSearchIndex.search(name, after, size);
+        if (hits == null) {
+            return Result.fail("搜索索引尚未就绪");
+        }
+        //3. 根据id批量查询店铺缓存，不足一页说明没有下一页
+        List<Long> ids = hits.stream().map(InvertedIndex.Hit::getId).collect(Collectors.toList());
+        String next = null;
+        if (hits.size() == size) {
+            InvertedIndex.Hit last = hits.get(hits.size() - 1);
+            next = CursorUtils.encode(last.getScore(), last.getId());
+        }
+        return Result.ok(new CursorResult(cacheClient.multiGet(shopCacheSpec, ids), next));
     }
 
-    public void saveShop2Redis(Long id,Long expireSeconds){
-        //1. 查询店铺数据
-        Shop shop = getById(id);
-        //2. 封装逻辑过期时间
-        RedisData redisData = new RedisData();
-        redisData.setData(shop);
-        redisData.setExpireTime(LocalDateTime.now().plusSeconds(expireSeconds));
-        //3. 写入Redis
-        stringRedisTemplate.opsForValue().set(CACHE_SHOP_KEY + id,JSONUtil.toJsonStr(redisData));
+    @Override
+    public Result queryShopByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Result.ok(Collections.emptyList());
+        }
+        if (ids.size() > SystemConstants.MAX_BATCH_SIZE) {
+            return Result.fail("一次最多查询" + SystemConstants.MAX_BATCH_SIZE + "个店铺");
+        }
+        return Result.ok(cacheClient.multiGet(shopCacheSpec, ids));
     }
-    private static final ExecutorService CACHE_REBUILD_EXECUTOR = Executors.newFixedThreadPool(10);
-    public Shop queryWithLogicalExpire(Long id){
-        String key = CACHE_SHOP_KEY + id;
-        //1.在Redis中查询商品缓存
-        String shopJson = stringRedisTemplate.opsForValue().get(key);
-        //2.判断是否存在
-        if(StringUtils.isBlank(shopJson)){
-            // 3.未命中，直接返回null
-            return null;
-        }
-        //4. 命中，需要把json反序列化为对象
-        RedisData redisData = JSONUtil.toBean(shopJson, RedisData.class);
-        Shop shop = JSONUtil.toBean((JSONObject) redisData.getData(), Shop.class);
-        LocalDateTime expireTime = redisData.getExpireTime();
-        //5. 判断是否过期
-        if(expireTime.isAfter(LocalDateTime.now())){
-            //5.1 未过期，直接返回店铺信息
-            return shop;
-        }
-        //5.2 已过期，需要缓存重建
-        // 6.缓存重建
-        // 6.1 获取互斥锁
-        String lockKey = LOCK_SHOP_KEY + id;
-        boolean isLock = tryLock(lockKey);
-        //6.2 判断是否获取锁成功
-        if(isLock){
-            CACHE_REBUILD_EXECUTOR.submit( ()->{
-                try{
-                    //重建缓存
-                    this.saveShop2Redis(id,20L);
-                }catch (Exception e){
-                    throw new RuntimeException(e);
-                }finally {
-                    unLock(lockKey);;
-                }
-            });
-        }
-        //6.4 返回过期的商铺信息
-        return shop;
+
+    @Override
+    public int warmUpCache(List<Long> ids, Duration refreshAhead) {
+        return cacheClient.warmUp(shopCacheSpec, ids, refreshAhead);
     }
 }
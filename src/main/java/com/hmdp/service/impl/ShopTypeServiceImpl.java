@@ -1,20 +1,24 @@
 package com.hmdp.service.impl;
 
-import cn.hutool.json.JSONUtil;
-import com.baomidou.mybatisplus.core.toolkit.StringUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.hmdp.config.CacheProperties;
 import com.hmdp.dto.Result;
+import com.hmdp.dto.ShopTypeSnapshot;
 import com.hmdp.entity.ShopType;
 import com.hmdp.mapper.ShopTypeMapper;
 import com.hmdp.service.IShopTypeService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
-import io.netty.util.internal.StringUtil;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
 import javax.annotation.Resource;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
-import static com.hmdp.utils.RedisConstants.CACHE_SHOP_KEY;
+import static com.hmdp.utils.RedisConstants.SHOP_TYPE_VERSION_KEY;
 
 /**
  * <p>
@@ -24,32 +28,111 @@ import static com.hmdp.utils.RedisConstants.CACHE_SHOP_KEY;
  * @author 虎哥
  * @since 2021-12-22
  */
+@Slf4j
 @Service
 public class ShopTypeServiceImpl extends ServiceImpl<ShopTypeMapper, ShopType> implements IShopTypeService {
 
     @Resource
     private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheProperties cacheProperties;
+    @Resource
+    private ObjectMapper objectMapper;
+
+    /**
+     * 类型列表的快照，版本号与 Redis 中 shop-type:version 一致
+     */
+    private volatile ShopTypeSnapshot snapshot;
+    /**
+     * 上次检查版本号的时间，同一时间只有一个请求线程去检查
+     */
+    private final AtomicLong lastCheckMillis = new AtomicLong();
+
     @Override
     public Result queryTypeList() {
-        String key = CACHE_SHOP_KEY + "TP";
-        //1.查询Redis中是否有缓存
-        String TypeList = stringRedisTemplate.opsForValue().get(key);
-        //2.如果存在
-        if(StringUtils.isNotBlank(TypeList)){
-            //将String类型转为java对象
-            List<ShopType> shopTypeList = JSONUtil.toList(TypeList, ShopType.class);
-            return Result.ok(shopTypeList);
+        return Result.ok(currentSnapshot().getList());
+    }
+
+    @Override
+    public ShopTypeSnapshot typeListSnapshot() {
+        return currentSnapshot();
+    }
+
+    @Override
+    public Result saveType(ShopType shopType) {
+        save(shopType);
+        bumpVersion();
+        return Result.ok(shopType.getId());
+    }
+
+    @Override
+    public Result updateType(ShopType shopType) {
+        if (shopType.getId() == null) {
+            return Result.fail("店铺类型id不能为空");
         }
-        //3.Redis中不存在，从数据库中查询
-        List<ShopType> list = list();
-        //4.如果数据库中也没有，返回错误
-        if(list==null){
-            return Result.fail("404");
+        updateById(shopType);
+        bumpVersion();
+        return Result.ok();
+    }
+
+    @Override
+    public Result deleteType(Long id) {
+        removeById(id);
+        bumpVersion();
+        return Result.ok();
+    }
+
+    private ShopTypeSnapshot currentSnapshot() {
+        ShopTypeSnapshot current = snapshot;
+        //1.首次访问同步加载
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load(readVersion());
+                    lastCheckMillis.set(System.currentTimeMillis());
+                }
+                return snapshot;
+            }
         }
-        //4.将数据写回Redis缓存
-        String jsonStr = JSONUtil.toJsonStr(list);
-        stringRedisTemplate.opsForValue().set(key,jsonStr);
-        //5.返回List
-        return Result.ok(list);
+        //2.距上次检查超过间隔时，由抢到检查权的线程比较版本号，其他线程直接返回当前快照
+        long now = System.currentTimeMillis();
+        long last = lastCheckMillis.get();
+        if (now - last < cacheProperties.getShopTypeVersionCheckMillis() || !lastCheckMillis.compareAndSet(last, now)) {
+            return current;
+        }
+        try {
+            long version = readVersion();
+            if (version != current.getVersion()) {
+                snapshot = load(version);
+                log.debug("店铺类型列表已刷新，版本：{}", version);
+            }
+        } catch (Exception e) {
+            // Redis 不可用时继续使用当前快照
+            log.warn("检查店铺类型版本失败", e);
+        }
+        return snapshot;
+    }
+
+    private ShopTypeSnapshot load(long version) {
+        List<ShopType> list = Collections.unmodifiableList(query().orderByAsc("sort").list());
+        try {
+            return new ShopTypeSnapshot(version, list, objectMapper.writeValueAsBytes(Result.ok(list)));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("店铺类型列表序列化失败", e);
+        }
+    }
+
+    private long readVersion() {
+        String version = stringRedisTemplate.opsForValue().get(SHOP_TYPE_VERSION_KEY);
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    /**
+     * 类型表变更后递增版本号，各节点在下一次检查时重新加载
+     */
+    private void bumpVersion() {
+        stringRedisTemplate.opsForValue().increment(SHOP_TYPE_VERSION_KEY);
+        // 本节点立即检查
+        lastCheckMillis.set(0);
     }
 }
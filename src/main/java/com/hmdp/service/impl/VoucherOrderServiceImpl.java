@@ -1,5 +1,7 @@
 package com.hmdp.service.impl;
 
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.dto.RateLimited;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.SeckillVoucher;
 import com.hmdp.entity.VoucherOrder;
@@ -7,29 +9,62 @@ import com.hmdp.mapper.VoucherOrderMapper;
 import com.hmdp.service.ISeckillVoucherService;
 import com.hmdp.service.IVoucherOrderService;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.CacheSpec;
+import com.hmdp.utils.CacheStrategy;
 import com.hmdp.utils.RedisIdWorker;
-import com.hmdp.utils.SimpleRedisLock;
+import com.hmdp.utils.SeckillAdmission;
+import com.hmdp.utils.SeckillStockKeys;
+import com.hmdp.utils.SoldOutRegistry;
 import com.hmdp.utils.UserHolder;
-import lombok.val;
-import org.redisson.Redisson;
-import org.redisson.api.RLock;
-import org.redisson.api.RedissonClient;
-import org.springframework.aop.framework.AopContext;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.annotation.Resource;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.CACHE_SECKILL_VOUCHER_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_SECKILL_VOUCHER_TTL;
+import static com.hmdp.utils.RedisConstants.SECKILL_ARCHIVE_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_LIMIT_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_STREAM_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_SOLD_OUT_CHANNEL;
 
 /**
  * <p>
  *  服务实现类
  * </p>
  */
+@Slf4j
 @Service
 public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, VoucherOrder> implements IVoucherOrderService {
 
+    private static final DefaultRedisScript<Long> SECKILL_SCRIPT;
+    static {
+        SECKILL_SCRIPT = new DefaultRedisScript<>();
+        SECKILL_SCRIPT.setLocation(new ClassPathResource("seckill.lua"));
+        SECKILL_SCRIPT.setResultType(Long.class);
+    }
+    private static final long SECKILL_OK = 0;
+    private static final long SECKILL_NO_STOCK = 1;
+    private static final long SECKILL_DUPLICATE = 2;
+    private static final long SECKILL_NOT_LOADED = 3;
+
     @Resource
     private ISeckillVoucherService seckillVoucherService;
     @Resource
@@ -37,79 +72,240 @@ public class VoucherOrderServiceImpl extends ServiceImpl<VoucherOrderMapper, Vou
     @Resource
     private StringRedisTemplate stringRedisTemplate;
     @Resource
-    private RedissonClient redissonClient;
+    private CacheClient cacheClient;
+    @Resource
+    private SeckillProperties seckillProperties;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+    @Resource
+    private SeckillAdmission seckillAdmission;
+
+    /**
+     * 秒杀券的开始、结束时间，下单时只读，使用本地缓存，请求在进程内完成时间校验
+     */
+    private final CacheSpec<Long, SeckillVoucher> seckillVoucherCacheSpec = CacheSpec.<Long, SeckillVoucher>builder()
+            .keyPrefix(CACHE_SECKILL_VOUCHER_KEY)
+            .type(SeckillVoucher.class)
+            .dbFallback(id -> seckillVoucherService.getById(id))
+            .ttl(CACHE_SECKILL_VOUCHER_TTL)
+            .strategy(CacheStrategy.MUTEX)
+            .localCache(true)
+            .build();
 
     @Override
     public Result seckillVoucher(Long voucherId) {
         //1. 查询优惠券
-        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
+        SeckillVoucher voucher = cacheClient.get(seckillVoucherCacheSpec, voucherId);
+        if (voucher == null) {
+            return Result.fail("优惠券不存在");
+        }
         //2. 判断秒杀是否开始
         if (voucher.getBeginTime().isAfter(LocalDateTime.now())) {
-            //当前时间在开始时间之后 尚未开始
             return Result.fail("秒杀尚未开始");
         }
         //3. 判断秒杀是否结束
         if (voucher.getEndTime().isBefore(LocalDateTime.now())) {
-            //当前时间在结束时间之前  活动已经结束
             return Result.fail("秒杀已经结束");
         }
-        //4. 判断库存是否充足
-        if (voucher.getStock() < 1) {
-            //库存不足
+        //4. 本地已标记售罄，直接拒绝
+        if (soldOutRegistry.isSoldOut(voucherId)) {
             return Result.fail("库存不足");
         }
+        //5. 准入控制，超出处理能力的请求直接拒绝，并提示多久后重试
+        long retryAfterMillis = seckillAdmission.tryAdmit(voucher);
+        if (retryAfterMillis > 0) {
+            return Result.fail("抢购人数过多，请稍后重试", new RateLimited(retryAfterMillis));
+        }
+        //6. 执行lua脚本，原子地判断库存和一人一单，扣减Redis库存并把订单写入stream:orders，
+        //   由SeckillOrderConsumer异步写入数据库
         Long userId = UserHolder.getUser().getId();
-        //创建锁对象
-        //SimpleRedisLock lock =
-                new SimpleRedisLock("order:"+userId,stringRedisTemplate);
-        RLock lock = redissonClient.getLock("lock:order:" + userId);
-        //获取锁
-        //boolean success = lock.tryLock(1200L);
-        boolean isLock = lock.tryLock();
-        if(!isLock) {
-            return Result.fail("不可重复下单");
+        long orderId = redisIdWorker.nextId("order");
+        List<String> keys = new ArrayList<>(Arrays.asList(SECKILL_ORDER_KEY + voucherId, SECKILL_ORDER_STREAM_KEY,
+                SeckillStockKeys.keys(voucherId, buckets(voucher)).get(0)));
+        keys.addAll(SeckillStockKeys.probeOrder(voucherId, buckets(voucher), userId));
+        long r = executeSeckill(keys, userId, voucherId, orderId);
+        if (r == SECKILL_NOT_LOADED) {
+            //6.1 Redis中没有库存，从数据库加载后重试一次
+            loadSeckillStock(voucherId, buckets(voucher));
+            r = executeSeckill(keys, userId, voucherId, orderId);
         }
-
-        try {
-            IVoucherOrderService proxy = (IVoucherOrderService) AopContext.currentProxy();
-            return proxy.creatVoucherOrder(voucherId);
-        }finally {
-            //释放锁
-            lock.unlock();
+        if (r == SECKILL_NO_STOCK) {
+            //6.2 售罄通知可能还未到达，本节点先标记
+            soldOutRegistry.markSoldOut(voucherId);
+            return Result.fail("库存不足");
         }
-}
+        if (r != SECKILL_OK) {
+            return Result.fail(r == SECKILL_DUPLICATE ? "不能重复下单" : "库存不足");
+        }
+        //7. 返回订单id
+        return Result.ok(orderId);
+    }
+
+    @Override
     @Transactional
-    public Result creatVoucherOrder(Long voucherId) {
-        //5.一人一单
-        Long userId = UserHolder.getUser().getId();
-        //5.1 查询订单
+    public void creatVoucherOrder(VoucherOrder voucherOrder) {
+        //1.一人一单，Redis已校验，这里防止Redis数据丢失后重复下单
+        Long userId = voucherOrder.getUserId();
+        Long voucherId = voucherOrder.getVoucherId();
         int count = query().eq("user_id", userId).eq("voucher_id", voucherId).count();
-        //5.2 判断是否存在
-        if(count > 0){
-            return Result.fail("该优惠券只能购买一张");
+        if (count > 0) {
+            log.warn("用户重复下单，userId：{}，voucherId：{}", userId, voucherId);
+            return;
+        }
+        //2.先创建订单，唯一索引 (voucher_id, user_id) 拒绝并发的重复投递，视为已写入
+        try {
+            save(voucherOrder);
+        } catch (DuplicateKeyException e) {
+            log.warn("订单已存在，userId：{}，voucherId：{}", userId, voucherId);
+            return;
         }
-        //6.扣减库存
+        //3.扣减库存，库存不足时回滚订单并抛出异常，消息不确认，多次重试仍失败后转入死信队列
         boolean success = seckillVoucherService.update()
-                .setSql("stock = stock-1")
+                .setSql("stock = stock - 1")
                 .eq("voucher_id", voucherId)
-                .gt("stock",0)            //添加乐观锁
+                .gt("stock", 0)            //乐观锁
                 .update();
+        if (!success) {
+            throw new IllegalStateException("库存不足，voucherId：" + voucherId + "，orderId：" + voucherOrder.getId());
+        }
+    }
 
-        if(!success){
-            return Result.fail("库存不足");
+    @Override
+    @Transactional
+    public int creatVoucherOrders(List<VoucherOrder> voucherOrders) {
+        //1.一人一单：去掉批次内重复的，以及数据库中已存在的（重复投递或Redis数据丢失）
+        Set<Long> userIds = voucherOrders.stream().map(VoucherOrder::getUserId).collect(Collectors.toSet());
+        Set<Long> voucherIds = voucherOrders.stream().map(VoucherOrder::getVoucherId).collect(Collectors.toSet());
+        Set<String> existing = query().select("user_id", "voucher_id")
+                .in("user_id", userIds).in("voucher_id", voucherIds).list()
+                .stream().map(o -> o.getUserId() + ":" + o.getVoucherId()).collect(Collectors.toSet());
+        List<VoucherOrder> orders = new ArrayList<>(voucherOrders.size());
+        for (VoucherOrder order : voucherOrders) {
+            if (existing.add(order.getUserId() + ":" + order.getVoucherId())) {
+                orders.add(order);
+            } else {
+                log.warn("用户重复下单，userId：{}，voucherId：{}", order.getUserId(), order.getVoucherId());
+            }
+        }
+        if (orders.isEmpty()) {
+            return 0;
+        }
+        //2.每张优惠券合并扣减一次库存，库存不足时整批回滚，由调用方逐条写入
+        Map<Long, Long> counts = orders.stream()
+                .collect(Collectors.groupingBy(VoucherOrder::getVoucherId, Collectors.counting()));
+        counts.forEach((voucherId, k) -> {
+            boolean success = seckillVoucherService.update()
+                    .setSql("stock = stock - " + k)
+                    .eq("voucher_id", voucherId)
+                    .ge("stock", k)
+                    .update();
+            if (!success) {
+                throw new IllegalStateException("库存不足，voucherId：" + voucherId);
+            }
+        });
+        //3.批量插入订单
+        saveBatch(orders);
+        return orders.size();
+    }
+
+    @Override
+    public boolean preloadSeckill(SeckillVoucher voucher) {
+        Long voucherId = voucher.getVoucherId();
+        int buckets = buckets(voucher);
+        boolean loaded = false;
+        //1.缓存的秒杀券信息与数据库不一致（券被修改过，或创建前缓存了空值）时重新加载
+        SeckillVoucher cached = cacheClient.get(seckillVoucherCacheSpec, voucherId);
+        if (cached == null || !voucher.getBeginTime().equals(cached.getBeginTime())
+                || !voucher.getEndTime().equals(cached.getEndTime()) || buckets != buckets(cached)) {
+            cacheClient.evict(CACHE_SECKILL_VOUCHER_KEY, voucherId);
+            cacheClient.get(seckillVoucherCacheSpec, voucherId);
+            loaded = true;
+        }
+        //2.库存未加载（Redis被清空或创建时写入失败）时从数据库加载库存和已下单用户
+        List<String> stockKeys = SeckillStockKeys.keys(voucherId, buckets);
+        List<String> stocks = stringRedisTemplate.opsForValue().multiGet(stockKeys);
+        if (stocks == null || stocks.get(0) == null) {
+            loadSeckillStock(voucherId, buckets);
+            loaded = true;
+            stocks = stringRedisTemplate.opsForValue().multiGet(stockKeys);
+        }
+        //3.校验每个库存桶都已存在，个别桶丢失时无法还原，按 0 补齐并告警
+        for (int i = 0; i < stockKeys.size(); i++) {
+            if (stocks == null || stocks.get(i) == null) {
+                log.warn("秒杀库存桶缺失，按0补齐：{}", stockKeys.get(i));
+                stringRedisTemplate.opsForValue().setIfAbsent(stockKeys.get(i), "0");
+                loaded = true;
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public void warmSeckillVoucher(Long voucherId) {
+        cacheClient.get(seckillVoucherCacheSpec, voucherId);
+    }
+
+    @Override
+    public boolean archiveSeckill(SeckillVoucher voucher) {
+        Long voucherId = voucher.getVoucherId();
+        List<String> stockKeys = SeckillStockKeys.keys(voucherId, buckets(voucher));
+        String orderKey = SECKILL_ORDER_KEY + voucherId;
+        //1.库存和已下单用户都不存在说明已归档或从未加载
+        List<String> stocks = stringRedisTemplate.opsForValue().multiGet(stockKeys);
+        Long buyers = stringRedisTemplate.opsForSet().size(orderKey);
+        boolean loaded = stocks != null && stocks.stream().anyMatch(Objects::nonNull);
+        if (!loaded && (buyers == null || buyers == 0)) {
+            return false;
+        }
+        //2.记录归档摘要
+        int remaining = stocks == null ? 0 : stocks.stream()
+                .mapToInt(v -> v == null ? 0 : Math.max(Integer.parseInt(v), 0)).sum();
+        Map<String, String> summary = new HashMap<>();
+        summary.put("remainingStock", String.valueOf(remaining));
+        summary.put("buyers", String.valueOf(buyers == null ? 0 : buyers));
+        summary.put("endTime", voucher.getEndTime().toString());
+        summary.put("archiveTime", LocalDateTime.now().toString());
+        String archiveKey = SECKILL_ARCHIVE_KEY + voucherId;
+        stringRedisTemplate.opsForHash().putAll(archiveKey, summary);
+        stringRedisTemplate.expire(archiveKey, seckillProperties.getPreload().getArchiveTtlDays(), TimeUnit.DAYS);
+        //3.删除秒杀期间使用的key，秒杀已结束，下单请求在时间校验处就会被拒绝
+        List<String> keys = new ArrayList<>(stockKeys);
+        keys.add(orderKey);
+        keys.add(SECKILL_LIMIT_KEY + voucherId);
+        stringRedisTemplate.delete(keys);
+        cacheClient.evict(CACHE_SECKILL_VOUCHER_KEY, voucherId);
+        return true;
+    }
+
+    private static int buckets(SeckillVoucher voucher) {
+        return voucher.getBuckets() == null ? 1 : voucher.getBuckets();
+    }
+
+    private long executeSeckill(List<String> keys, Long userId, Long voucherId, long orderId) {
+        Long r = stringRedisTemplate.execute(SECKILL_SCRIPT, keys, userId.toString(), voucherId.toString(),
+                String.valueOf(orderId), String.valueOf(seckillProperties.getStream().getMaxLength()), SECKILL_SOLD_OUT_CHANNEL);
+        return r == null ? SECKILL_NO_STOCK : r;
+    }
+
+    /**
+     * 根据数据库中的剩余库存和已有订单初始化Redis，先写入已下单用户再写入库存，
+     * 库存 key 已存在时不覆盖
+     */
+    private void loadSeckillStock(Long voucherId, int buckets) {
+        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
+        if (voucher == null) {
+            return;
+        }
+        String[] userIds = query().select("user_id").eq("voucher_id", voucherId).list()
+                .stream().map(order -> order.getUserId().toString()).toArray(String[]::new);
+        if (userIds.length > 0) {
+            stringRedisTemplate.opsForSet().add(SECKILL_ORDER_KEY + voucherId, userIds);
+        }
+        List<String> stockKeys = SeckillStockKeys.keys(voucherId, buckets);
+        int[] parts = SeckillStockKeys.split(voucher.getStock(), buckets);
+        // 第一个桶最后写入，脚本以它是否存在判断库存是否已加载
+        for (int i = stockKeys.size() - 1; i >= 0; i--) {
+            stringRedisTemplate.opsForValue().setIfAbsent(stockKeys.get(i), String.valueOf(parts[i]));
         }
-        //6. 创建订单
-        VoucherOrder voucherOrder = new VoucherOrder();
-        //6.1 订单id
-        //获取全局唯一id
-        long orderId = redisIdWorker.nextId("order");
-        voucherOrder.setId(orderId);
-        //6.2 设置用户id
-        voucherOrder.setUserId(userId);
-        //6.3 代金券id
-        voucherOrder.setVoucherId(voucherId);
-        save(voucherOrder);
-        //7. 返回订单id
-        return Result.ok(orderId);
     }
 }
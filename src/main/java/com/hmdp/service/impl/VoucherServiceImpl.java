@@ -1,5 +1,6 @@
 package com.hmdp.service.impl;
 
+import cn.hutool.core.lang.TypeReference;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.hmdp.dto.Result;
 import com.hmdp.entity.Voucher;
@@ -7,14 +8,24 @@ import com.hmdp.mapper.VoucherMapper;
 import com.hmdp.entity.SeckillVoucher;
 import com.hmdp.service.ISeckillVoucherService;
 import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.CacheClient;
+import com.hmdp.utils.CacheSpec;
+import com.hmdp.utils.CacheStrategy;
+import com.hmdp.utils.SeckillStockKeys;
+import com.hmdp.utils.SoldOutRegistry;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Resource;
+import java.util.Collections;
 import java.util.List;
 
-import static com.hmdp.utils.RedisConstants.SECKILL_STOCK_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_SECKILL_VOUCHER_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_VOUCHER_KEY;
+import static com.hmdp.utils.RedisConstants.CACHE_VOUCHER_TTL;
 
 /**
  * <p>
@@ -31,11 +42,38 @@ public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> impl
     private StringRedisTemplate stringRedisTemplate;
     @Resource
     private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private CacheClient cacheClient;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+
+    /**
+     * 店铺优惠券列表缓存，列表中带有秒杀库存，因此过期时间较短
+     */
+    private final CacheSpec<Long, List<Voucher>> voucherCacheSpec = CacheSpec.<Long, List<Voucher>>builder()
+            .keyPrefix(CACHE_VOUCHER_KEY)
+            .type(new TypeReference<List<Voucher>>() {}.getType())
+            .dbFallback(shopId -> getBaseMapper().queryVoucherOfShop(shopId))
+            .ttl(CACHE_VOUCHER_TTL)
+            .strategy(CacheStrategy.MUTEX)
+            .build();
 
     @Override
     public Result queryVoucherOfShop(Long shopId) {
         // 查询优惠券信息
-        List<Voucher> vouchers = getBaseMapper().queryVoucherOfShop(shopId);
+        List<Voucher> vouchers = cacheClient.get(voucherCacheSpec, shopId);
+        if (vouchers == null) {
+            return Result.ok(Collections.emptyList());
+        }
+        // 秒杀券展示Redis中各桶库存的合计，数据库库存由异步下单扣减，会有延迟
+        for (Voucher voucher : vouchers) {
+            if (voucher.getStock() != null) {
+                Integer stock = remainingStock(voucher.getId(), voucher.getBuckets() == null ? 1 : voucher.getBuckets());
+                if (stock != null) {
+                    voucher.setStock(stock);
+                }
+            }
+        }
         // 返回结果
         return Result.ok(vouchers);
     }
@@ -49,10 +87,69 @@ public class VoucherServiceImpl extends ServiceImpl<VoucherMapper, Voucher> impl
         SeckillVoucher seckillVoucher = new SeckillVoucher();
         seckillVoucher.setVoucherId(voucher.getId());
         seckillVoucher.setStock(voucher.getStock());
+        int buckets = voucher.getBuckets() == null ? 1 : Math.max(voucher.getBuckets(), 1);
+        seckillVoucher.setBuckets(buckets);
         seckillVoucher.setBeginTime(voucher.getBeginTime());
         seckillVoucher.setEndTime(voucher.getEndTime());
         seckillVoucherService.save(seckillVoucher);
-        // 保存秒杀库存到Redis中
-        stringRedisTemplate.opsForValue().set(SECKILL_STOCK_KEY + voucher.getId(), voucher.getStock().toString());
+        // 保存秒杀库存到Redis中，分桶时均分到各个桶，第一个桶最后写入，下单脚本以它是否存在判断库存是否已加载
+        List<String> keys = SeckillStockKeys.keys(voucher.getId(), buckets);
+        int[] parts = SeckillStockKeys.split(voucher.getStock(), buckets);
+        for (int i = keys.size() - 1; i >= 0; i--) {
+            stringRedisTemplate.opsForValue().set(keys.get(i), String.valueOf(parts[i]));
+        }
+        // 删除店铺优惠券列表缓存，以及创建前被查询时写入的秒杀信息空值
+        cacheClient.evict(CACHE_VOUCHER_KEY, voucher.getShopId());
+        cacheClient.evict(CACHE_SECKILL_VOUCHER_KEY, voucher.getId());
+    }
+
+    /**
+     * Redis中各桶剩余库存的合计，库存未加载时返回 null
+     */
+    private Integer remainingStock(Long voucherId, int buckets) {
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(SeckillStockKeys.keys(voucherId, buckets));
+        if (values == null || values.get(0) == null) {
+            return null;
+        }
+        return values.stream().mapToInt(v -> v == null ? 0 : Math.max(Integer.parseInt(v), 0)).sum();
+    }
+
+    @Override
+    @Transactional
+    public Result addSeckillStock(Long voucherId, Integer count) {
+        if (count == null || count <= 0) {
+            return Result.fail("补货数量必须大于0");
+        }
+        SeckillVoucher seckillVoucher = seckillVoucherService.getById(voucherId);
+        if (seckillVoucher == null) {
+            return Result.fail("秒杀券不存在");
+        }
+        //1.增加数据库库存
+        seckillVoucherService.update()
+                .setSql("stock = stock + " + count)
+                .eq("voucher_id", voucherId)
+                .update();
+        //2.事务提交后再增加Redis库存并清除售罄标记，回滚时Redis库存不会多于数据库
+        int buckets = seckillVoucher.getBuckets() == null ? 1 : Math.max(seckillVoucher.getBuckets(), 1);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                addRedisStock(voucherId, buckets, count);
+            }
+        });
+        return Result.ok();
+    }
+
+    private void addRedisStock(Long voucherId, int buckets, int count) {
+        //1.分桶时均分到各个桶，库存未加载时由下单时从数据库加载
+        List<String> keys = SeckillStockKeys.keys(voucherId, buckets);
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(keys.get(0)))) {
+            int[] parts = SeckillStockKeys.split(count, keys.size());
+            for (int i = 0; i < keys.size(); i++) {
+                stringRedisTemplate.opsForValue().increment(keys.get(i), parts[i]);
+            }
+        }
+        //2.清除各节点的售罄标记
+        soldOutRegistry.reset(voucherId);
     }
 }
@@ -0,0 +1,105 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.LOCK_STATS_DECAY_KEY;
+import static com.hmdp.utils.RedisConstants.STATS_ACCESS_KEY;
+
+/**
+ * 记录数据的访问次数，作为缓存预热挑选热点数据的依据。
+ * 访问先在本地累加，定期通过 pipeline 批量 ZINCRBY 到 Redis 的 stats:access:{name}，
+ * 并定期衰减历史分数，使排名反映近期的热度。
+ */
+@Slf4j
+@Component
+public class AccessRecorder {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private CacheProperties cacheProperties;
+
+    private final Map<String, Map<String, LongAdder>> counters = new ConcurrentHashMap<>();
+
+    public void record(String name, Object id) {
+        counters.computeIfAbsent(name, k -> new ConcurrentHashMap<>())
+                .computeIfAbsent(String.valueOf(id), k -> new LongAdder())
+                .increment();
+    }
+
+    /**
+     * 按访问次数从高到低返回前 n 个 id
+     */
+    public List<String> top(String name, int n) {
+        Set<String> ids = stringRedisTemplate.opsForZSet().reverseRange(STATS_ACCESS_KEY + name, 0, n - 1);
+        return ids == null ? Collections.emptyList() : new ArrayList<>(ids);
+    }
+
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${hmdp.cache.warm-up.stats-flush-millis:10000}")
+    public void flush() {
+        counters.forEach((name, counter) -> {
+            byte[] rawKey = (STATS_ACCESS_KEY + name).getBytes(StandardCharsets.UTF_8);
+            List<Object[]> increments = new ArrayList<>(counter.size());
+            counter.forEach((id, adder) -> {
+                long count = adder.sumThenReset();
+                if (count > 0) {
+                    increments.add(new Object[]{id.getBytes(StandardCharsets.UTF_8), count});
+                }
+            });
+            // 清理本轮没有访问的 id，避免本地计数无限增长
+            counter.values().removeIf(adder -> adder.sum() == 0);
+            if (increments.isEmpty()) {
+                return;
+            }
+            try {
+                stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    for (Object[] increment : increments) {
+                        connection.zIncrBy(rawKey, (Long) increment[1], (byte[]) increment[0]);
+                    }
+                    return null;
+                });
+            } catch (Exception e) {
+                // 访问统计只用于预热，丢失一轮数据不影响业务
+                log.warn("访问统计[{}]写入Redis失败", name, e);
+            }
+        });
+    }
+
+    /**
+     * 所有分数按比例衰减并只保留排名靠前的部分，同一周期内只由一个节点执行
+     */
+    @Scheduled(cron = "${hmdp.cache.warm-up.stats-decay-cron:0 0 * * * ?}")
+    public void decay() {
+        CacheProperties.WarmUp warmUp = cacheProperties.getWarmUp();
+        for (String name : counters.keySet()) {
+            Boolean first = stringRedisTemplate.opsForValue()
+                    .setIfAbsent(LOCK_STATS_DECAY_KEY + name, "1", warmUp.getStatsDecayLockSeconds(), TimeUnit.SECONDS);
+            if (!Boolean.TRUE.equals(first)) {
+                continue;
+            }
+            String key = STATS_ACCESS_KEY + name;
+            stringRedisTemplate.opsForZSet().unionAndStore(key, Collections.emptyList(), key,
+                    RedisZSetCommands.Aggregate.SUM, RedisZSetCommands.Weights.of(warmUp.getStatsDecayFactor()));
+            stringRedisTemplate.opsForZSet().removeRange(key, 0, -warmUp.getStatsMaxSize() - 1);
+        }
+    }
+}
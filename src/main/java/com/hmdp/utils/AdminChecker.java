@@ -0,0 +1,22 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.dto.UserDTO;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+/**
+ * 运维接口的权限校验：当前登录用户在 hmdp.seckill.admin-user-ids 中才允许调用
+ */
+@Component
+public class AdminChecker {
+
+    @Resource
+    private SeckillProperties seckillProperties;
+
+    public boolean isAdmin() {
+        UserDTO user = UserHolder.getUser();
+        return user != null && seckillProperties.getAdminUserIds().contains(user.getId());
+    }
+}
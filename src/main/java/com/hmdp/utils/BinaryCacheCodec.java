@@ -0,0 +1,515 @@
+package com.hmdp.utils;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 紧凑的二进制编码，只支持由基本类型、字符串、时间组成的实体类及其 List。
+ * <pre>
+ * 头部：魔数(1) 格式版本(1) 类型(1)，逻辑过期时随后是过期时间
+ * 实体：结构指纹(4) 空值位图 非空字段依次写入，整数使用 zigzag 变长编码
+ * 字符串：长度超过阈值时使用 LZ4 压缩，例如店铺和笔记的图片地址
+ * </pre>
+ * 实体类字段变化后结构指纹不同，旧数据解码返回 null，按缓存未命中重新加载。
+ */
+public class BinaryCacheCodec implements CacheCodec {
+
+    public static final byte MAGIC = (byte) 0xCB;
+    private static final byte FORMAT_VERSION = 1;
+    private static final byte KIND_VALUE = 0;
+    private static final byte KIND_LOGICAL = 1;
+    /**
+     * 带重建耗时的逻辑过期数据，重建耗时为空时仍写为 KIND_LOGICAL，兼容旧版本节点
+     */
+    private static final byte KIND_LOGICAL_TIMED = 2;
+    private static final byte TAG_NULL = 0;
+    private static final byte TAG_BEAN = 1;
+    private static final byte TAG_LIST = 2;
+
+    private static final LZ4Compressor COMPRESSOR = LZ4Factory.fastestInstance().fastCompressor();
+    private static final LZ4FastDecompressor DECOMPRESSOR = LZ4Factory.fastestInstance().fastDecompressor();
+
+    private final int compressThreshold;
+    private final ConcurrentHashMap<Class<?>, Optional<Schema>> schemas = new ConcurrentHashMap<>();
+
+    public BinaryCacheCodec(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+    }
+
+    public static boolean isBinary(byte[] bytes) {
+        return bytes.length >= 3 && bytes[0] == MAGIC;
+    }
+
+    /**
+     * 判断数据类型能否使用二进制编码
+     */
+    public boolean supports(Object value) {
+        if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                if (element != null && schemaOf(element.getClass()) == null) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return value == null || schemaOf(value.getClass()) != null;
+    }
+
+    /**
+     * 判断目标类型能否使用二进制解码
+     */
+    public boolean supportsType(Type type) {
+        Class<?> raw = rawClass(type);
+        if (List.class.isAssignableFrom(raw)) {
+            return type instanceof ParameterizedType && schemaOf(elementClass(type)) != null;
+        }
+        return schemaOf(raw) != null;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        Output out = new Output();
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION);
+        out.write(KIND_VALUE);
+        writeValue(out, value);
+        return out.toByteArray();
+    }
+
+    @Override
+    public byte[] encodeLogical(RedisData redisData) {
+        Output out = new Output();
+        out.write(MAGIC);
+        out.write(FORMAT_VERSION);
+        Long recomputeMillis = redisData.getRecomputeMillis();
+        out.write(recomputeMillis == null ? KIND_LOGICAL : KIND_LOGICAL_TIMED);
+        writeDateTime(out, redisData.getExpireTime());
+        if (recomputeMillis != null) {
+            out.writeVarLong(recomputeMillis);
+        }
+        writeValue(out, redisData.getData());
+        return out.toByteArray();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T decode(byte[] bytes, Type type) {
+        ByteBuffer in = header(bytes, KIND_VALUE);
+        if (in == null) {
+            return null;
+        }
+        Object[] holder = new Object[1];
+        return readValue(in, type, holder) ? (T) holder[0] : null;
+    }
+
+    @Override
+    public RedisData decodeLogical(byte[] bytes, Type type) {
+        boolean timed = header(bytes, KIND_LOGICAL_TIMED) != null;
+        ByteBuffer in = timed ? header(bytes, KIND_LOGICAL_TIMED) : header(bytes, KIND_LOGICAL);
+        if (in == null) {
+            return null;
+        }
+        LocalDateTime expireTime = readDateTime(in);
+        Long recomputeMillis = timed ? readVarLong(in) : null;
+        Object[] holder = new Object[1];
+        if (!readValue(in, type, holder)) {
+            return null;
+        }
+        RedisData redisData = new RedisData();
+        redisData.setExpireTime(expireTime);
+        redisData.setData(holder[0]);
+        redisData.setRecomputeMillis(recomputeMillis);
+        return redisData;
+    }
+
+    private ByteBuffer header(byte[] bytes, byte kind) {
+        if (!isBinary(bytes) || bytes[1] != FORMAT_VERSION || bytes[2] != kind) {
+            return null;
+        }
+        ByteBuffer in = ByteBuffer.wrap(bytes);
+        in.position(3);
+        return in;
+    }
+
+    private void writeValue(Output out, Object value) {
+        if (value == null) {
+            out.write(TAG_NULL);
+        } else if (value instanceof List) {
+            List<?> list = (List<?>) value;
+            out.write(TAG_LIST);
+            out.writeVarInt(list.size());
+            Schema schema = null;
+            for (Object element : list) {
+                if (element != null) {
+                    schema = requireSchema(element.getClass());
+                    break;
+                }
+            }
+            out.writeInt(schema == null ? 0 : schema.fingerprint);
+            for (Object element : list) {
+                if (element == null) {
+                    out.write(TAG_NULL);
+                } else {
+                    out.write(TAG_BEAN);
+                    writeFields(out, schema, element);
+                }
+            }
+        } else {
+            Schema schema = requireSchema(value.getClass());
+            out.write(TAG_BEAN);
+            out.writeInt(schema.fingerprint);
+            writeFields(out, schema, value);
+        }
+    }
+
+    /**
+     * @return 结构指纹不匹配时返回 false
+     */
+    private boolean readValue(ByteBuffer in, Type type, Object[] holder) {
+        byte tag = in.get();
+        if (tag == TAG_NULL) {
+            holder[0] = null;
+            return true;
+        }
+        if (tag == TAG_LIST) {
+            int size = readVarInt(in);
+            int fingerprint = in.getInt();
+            Schema schema = size == 0 ? null : requireSchema(elementClass(type));
+            if (schema != null && schema.fingerprint != fingerprint) {
+                return false;
+            }
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(in.get() == TAG_NULL ? null : readFields(in, schema));
+            }
+            holder[0] = list;
+            return true;
+        }
+        Schema schema = requireSchema(rawClass(type));
+        if (schema.fingerprint != in.getInt()) {
+            return false;
+        }
+        holder[0] = readFields(in, schema);
+        return true;
+    }
+
+    private void writeFields(Output out, Schema schema, Object bean) {
+        Object[] values = new Object[schema.fields.length];
+        byte[] nullBits = new byte[(schema.fields.length + 7) / 8];
+        for (int i = 0; i < schema.fields.length; i++) {
+            values[i] = schema.fields[i].get(bean);
+            if (values[i] == null) {
+                nullBits[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+        out.write(nullBits, 0, nullBits.length);
+        for (int i = 0; i < schema.fields.length; i++) {
+            if (values[i] == null) {
+                continue;
+            }
+            switch (schema.fields[i].kind) {
+                case LONG:
+                    out.writeVarLong(zigzag((Long) values[i]));
+                    break;
+                case INT:
+                    out.writeVarLong(zigzag((Integer) values[i]));
+                    break;
+                case DOUBLE:
+                    out.writeLong(Double.doubleToRawLongBits((Double) values[i]));
+                    break;
+                case BOOLEAN:
+                    out.write((Boolean) values[i] ? 1 : 0);
+                    break;
+                case STRING:
+                    writeString(out, (String) values[i]);
+                    break;
+                case DATE_TIME:
+                    writeDateTime(out, (LocalDateTime) values[i]);
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+        }
+    }
+
+    private Object readFields(ByteBuffer in, Schema schema) {
+        Object bean = schema.newInstance();
+        byte[] nullBits = new byte[(schema.fields.length + 7) / 8];
+        in.get(nullBits);
+        for (int i = 0; i < schema.fields.length; i++) {
+            if ((nullBits[i >>> 3] & (1 << (i & 7))) != 0) {
+                continue;
+            }
+            FieldCodec field = schema.fields[i];
+            Object value;
+            switch (field.kind) {
+                case LONG:
+                    value = unzigzag(readVarLong(in));
+                    break;
+                case INT:
+                    value = (int) unzigzag(readVarLong(in));
+                    break;
+                case DOUBLE:
+                    value = Double.longBitsToDouble(in.getLong());
+                    break;
+                case BOOLEAN:
+                    value = in.get() != 0;
+                    break;
+                case STRING:
+                    value = readString(in);
+                    break;
+                case DATE_TIME:
+                    value = readDateTime(in);
+                    break;
+                default:
+                    throw new IllegalStateException();
+            }
+            field.set(bean, value);
+        }
+        return bean;
+    }
+
+    private void writeString(Output out, String value) {
+        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
+        if (raw.length >= compressThreshold) {
+            byte[] compressed = COMPRESSOR.compress(raw);
+            if (compressed.length < raw.length) {
+                // 长度的最低位标记是否压缩
+                out.writeVarInt(compressed.length << 1 | 1);
+                out.writeVarInt(raw.length);
+                out.write(compressed, 0, compressed.length);
+                return;
+            }
+        }
+        out.writeVarInt(raw.length << 1);
+        out.write(raw, 0, raw.length);
+    }
+
+    private String readString(ByteBuffer in) {
+        int header = readVarInt(in);
+        int length = header >>> 1;
+        if ((header & 1) == 0) {
+            String value = new String(in.array(), in.position(), length, StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return value;
+        }
+        int rawLength = readVarInt(in);
+        byte[] raw = new byte[rawLength];
+        DECOMPRESSOR.decompress(in.array(), in.position(), raw, 0, rawLength);
+        in.position(in.position() + length);
+        return new String(raw, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDateTime(Output out, LocalDateTime time) {
+        out.writeVarLong(zigzag(time.toEpochSecond(ZoneOffset.UTC)));
+        out.writeVarInt(time.getNano());
+    }
+
+    private static LocalDateTime readDateTime(ByteBuffer in) {
+        long second = unzigzag(readVarLong(in));
+        int nano = readVarInt(in);
+        return LocalDateTime.ofEpochSecond(second, nano, ZoneOffset.UTC);
+    }
+
+    private Schema requireSchema(Class<?> type) {
+        Schema schema = schemaOf(type);
+        if (schema == null) {
+            throw new IllegalArgumentException("二进制编码不支持的类型：" + type.getName());
+        }
+        return schema;
+    }
+
+    private Schema schemaOf(Class<?> type) {
+        return schemas.computeIfAbsent(type, t -> Optional.ofNullable(Schema.build(t))).orElse(null);
+    }
+
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return (Class<?>) type;
+    }
+
+    private static Class<?> elementClass(Type type) {
+        if (type instanceof ParameterizedType) {
+            return rawClass(((ParameterizedType) type).getActualTypeArguments()[0]);
+        }
+        throw new IllegalArgumentException("List 类型需要提供元素类型：" + type);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int readVarInt(ByteBuffer in) {
+        return (int) readVarLong(in);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long result = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in.get();
+            result |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    private static class Output extends ByteArrayOutputStream {
+        Output() {
+            super(256);
+        }
+
+        void writeVarInt(int value) {
+            writeVarLong(value & 0xFFFFFFFFL);
+        }
+
+        void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        void writeInt(int value) {
+            write(value >>> 24);
+            write(value >>> 16);
+            write(value >>> 8);
+            write(value);
+        }
+
+        void writeLong(long value) {
+            writeInt((int) (value >>> 32));
+            writeInt((int) value);
+        }
+    }
+
+    private enum Kind {
+        LONG, INT, DOUBLE, BOOLEAN, STRING, DATE_TIME
+    }
+
+    private static class FieldCodec {
+        private final Field field;
+        private final Kind kind;
+
+        FieldCodec(Field field, Kind kind) {
+            this.field = field;
+            this.kind = kind;
+        }
+
+        Object get(Object bean) {
+            try {
+                return field.get(bean);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void set(Object bean, Object value) {
+            try {
+                field.set(bean, value);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    private static class Schema {
+        private final Constructor<?> constructor;
+        private final FieldCodec[] fields;
+        private final int fingerprint;
+
+        private Schema(Constructor<?> constructor, FieldCodec[] fields, int fingerprint) {
+            this.constructor = constructor;
+            this.fields = fields;
+            this.fingerprint = fingerprint;
+        }
+
+        /**
+         * @return 存在不支持的字段类型或没有无参构造时返回 null
+         */
+        static Schema build(Class<?> type) {
+            Constructor<?> constructor;
+            try {
+                constructor = type.getDeclaredConstructor();
+                constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                return null;
+            }
+            List<Field> declared = new ArrayList<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                declared.addAll(Arrays.asList(c.getDeclaredFields()));
+            }
+            declared.removeIf(f -> Modifier.isStatic(f.getModifiers()) || Modifier.isTransient(f.getModifiers()));
+            declared.sort(Comparator.comparing(Field::getName));
+            FieldCodec[] fields = new FieldCodec[declared.size()];
+            StringBuilder signature = new StringBuilder(type.getName());
+            for (int i = 0; i < fields.length; i++) {
+                Field field = declared.get(i);
+                Kind kind = kindOf(field.getType());
+                if (kind == null) {
+                    return null;
+                }
+                field.setAccessible(true);
+                fields[i] = new FieldCodec(field, kind);
+                signature.append(';').append(field.getName()).append(':').append(kind);
+            }
+            return new Schema(constructor, fields, signature.toString().hashCode());
+        }
+
+        Object newInstance() {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private static Kind kindOf(Class<?> type) {
+            if (type == Long.class) {
+                return Kind.LONG;
+            }
+            if (type == Integer.class) {
+                return Kind.INT;
+            }
+            if (type == Double.class) {
+                return Kind.DOUBLE;
+            }
+            if (type == Boolean.class) {
+                return Kind.BOOLEAN;
+            }
+            if (type == String.class) {
+                return Kind.STRING;
+            }
+            if (type == LocalDateTime.class) {
+                return Kind.DATE_TIME;
+            }
+            return null;
+        }
+    }
+}
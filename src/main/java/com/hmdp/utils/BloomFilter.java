@@ -0,0 +1,125 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.hash.MurmurHash;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 进程内的布隆过滤器位数组，位序与 Redis bitmap 保持一致，便于两边互相同步
+ */
+public class BloomFilter {
+
+    private final long numBits;
+    private final int numHashFunctions;
+    private final AtomicLongArray words;
+
+    public BloomFilter(long expectedInsertions, double fpp) {
+        this(optimalNumOfBits(expectedInsertions, fpp),
+                optimalNumOfHashFunctions(expectedInsertions, optimalNumOfBits(expectedInsertions, fpp)));
+    }
+
+    public BloomFilter(long numBits, int numHashFunctions) {
+        // 位数按字节对齐，保证与 Redis 中的字符串长度一致
+        this.numBits = (numBits + 7) / 8 * 8;
+        this.numHashFunctions = numHashFunctions;
+        this.words = new AtomicLongArray((int) ((this.numBits + 63) / 64));
+    }
+
+    public boolean mightContain(Object value) {
+        for (long index : bitIndexes(value)) {
+            if (!get(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return value 对应的位在 Redis bitmap 中的偏移量
+     */
+    public long[] put(Object value) {
+        long[] indexes = bitIndexes(value);
+        for (long index : indexes) {
+            set(index);
+        }
+        return indexes;
+    }
+
+    /**
+     * 采用双重哈希模拟 k 个哈希函数
+     */
+    public long[] bitIndexes(Object value) {
+        long[] hash = MurmurHash.hash128(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        long combined = hash[0];
+        long[] indexes = new long[numHashFunctions];
+        for (int i = 0; i < numHashFunctions; i++) {
+            indexes[i] = (combined & Long.MAX_VALUE) % numBits;
+            combined += hash[1];
+        }
+        return indexes;
+    }
+
+    public void set(long index) {
+        int word = (int) (index >>> 6);
+        long mask = 1L << (index & 63);
+        long old;
+        do {
+            old = words.get(word);
+            if ((old & mask) != 0) {
+                return;
+            }
+        } while (!words.compareAndSet(word, old, old | mask));
+    }
+
+    public boolean get(long index) {
+        return (words.get((int) (index >>> 6)) & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * 转为 Redis bitmap 格式：偏移量 i 位于第 i/8 个字节的高位起第 i%8 位
+     */
+    public byte[] toRedisBytes() {
+        byte[] bytes = new byte[(int) (numBits / 8)];
+        for (long i = 0; i < numBits; i++) {
+            if (get(i)) {
+                bytes[(int) (i >>> 3)] |= (byte) (0x80 >>> (i & 7));
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * 用 Redis 中读到的 bitmap 覆盖本地位数组，bytes 可能短于位数组（末尾的 0 不会被 Redis 存储）
+     */
+    public void loadRedisBytes(byte[] bytes) {
+        for (int w = 0; w < words.length(); w++) {
+            words.set(w, 0L);
+        }
+        if (bytes == null) {
+            return;
+        }
+        long limit = Math.min(numBits, (long) bytes.length * 8);
+        for (long i = 0; i < limit; i++) {
+            if ((bytes[(int) (i >>> 3)] & (0x80 >>> (i & 7))) != 0) {
+                set(i);
+            }
+        }
+    }
+
+    public long getNumBits() {
+        return numBits;
+    }
+
+    public int getNumHashFunctions() {
+        return numHashFunctions;
+    }
+
+    static long optimalNumOfBits(long n, double p) {
+        return (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+    }
+
+    static int optimalNumOfHashFunctions(long n, long m) {
+        return Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+    }
+}
@@ -0,0 +1,154 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.config.CacheProperties;
+import com.hmdp.entity.Blog;
+import com.hmdp.entity.Shop;
+import com.hmdp.mapper.BlogMapper;
+import com.hmdp.mapper.ShopMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.BLOOM_CHANNEL;
+import static com.hmdp.utils.RedisConstants.LOCK_BLOOM_KEY;
+
+/**
+ * 店铺与笔记 id 的布隆过滤器，查询缓存和数据库之前先判断 id 是否可能存在，
+ * 防止随机 id 扫描造成缓存穿透
+ */
+@Slf4j
+@Component
+public class BloomFilterManager implements MessageListener {
+
+    private static final int ID_BATCH_SIZE = 1000;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private CacheProperties cacheProperties;
+    @Resource
+    private ShopMapper shopMapper;
+    @Resource
+    private BlogMapper blogMapper;
+
+    private RedisBloomFilter shopFilter;
+    private RedisBloomFilter blogFilter;
+
+    @PostConstruct
+    public void init() {
+        CacheProperties.Bloom bloom = cacheProperties.getBloom();
+        shopFilter = new RedisBloomFilter("shop", bloom.getExpectedInsertions(), bloom.getFpp(), stringRedisTemplate);
+        blogFilter = new RedisBloomFilter("blog", bloom.getExpectedInsertions(), bloom.getFpp(), stringRedisTemplate);
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(BLOOM_CHANNEL));
+    }
+
+    public boolean mightContainShop(Long id) {
+        return shopFilter.mightContain(id);
+    }
+
+    public boolean mightContainBlog(Long id) {
+        return blogFilter.mightContain(id);
+    }
+
+    public void addShop(Long id) {
+        shopFilter.add(id);
+    }
+
+    public void addBlog(Long id) {
+        blogFilter.add(id);
+    }
+
+    /**
+     * 启动时加载，Redis 中还没有 bitmap 时由抢到锁的节点从数据库初始化
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        initFilter(shopFilter, this::nextShopIds);
+        initFilter(blogFilter, this::nextBlogIds);
+    }
+
+    /**
+     * 布隆过滤器无法删除元素，定期全量重建以清理已删除的数据
+     */
+    @Scheduled(cron = "${hmdp.cache.bloom.rebuild-cron:0 0 4 * * ?}")
+    public void rebuild() {
+        RLock lock = redissonClient.getLock(LOCK_BLOOM_KEY);
+        if (!lock.tryLock()) {
+            // 其他节点正在重建，完成后会通知本节点重新加载
+            return;
+        }
+        try {
+            shopFilter.rebuild(this::nextShopIds);
+            blogFilter.rebuild(this::nextBlogIds);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // 消息格式：add:{name}:{id} 或 reload:{name}
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split(":");
+        RedisBloomFilter filter = "shop".equals(parts[1]) ? shopFilter : "blog".equals(parts[1]) ? blogFilter : null;
+        if (filter == null) {
+            return;
+        }
+        if ("add".equals(parts[0]) && parts.length == 3) {
+            filter.addLocal(Long.valueOf(parts[2]));
+        } else if ("reload".equals(parts[0])) {
+            filter.load();
+        }
+    }
+
+    private void initFilter(RedisBloomFilter filter, Function<Long, List<Long>> nextIds) {
+        RLock lock = redissonClient.getLock(LOCK_BLOOM_KEY);
+        lock.lock();
+        try {
+            if (filter.existsInRedis()) {
+                filter.load();
+            } else {
+                filter.rebuild(nextIds);
+            }
+        } catch (Exception e) {
+            // 加载失败时过滤器保持放行状态，不影响正常查询
+            log.error("布隆过滤器[{}]初始化失败", filter.getName(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<Long> nextShopIds(Long lastId) {
+        return toIds(shopMapper.selectObjs(new QueryWrapper<Shop>()
+                .select("id").gt("id", lastId).orderByAsc("id").last("limit " + ID_BATCH_SIZE)));
+    }
+
+    private List<Long> nextBlogIds(Long lastId) {
+        return toIds(blogMapper.selectObjs(new QueryWrapper<Blog>()
+                .select("id").gt("id", lastId).orderByAsc("id").last("limit " + ID_BATCH_SIZE)));
+    }
+
+    private static List<Long> toIds(List<Object> objs) {
+        return objs.stream().map(o -> ((Number) o).longValue()).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,645 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.UUID;
+import com.hmdp.config.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.CACHE_REBUILD_LOCK_TTL;
+
+/**
+ * 通用缓存工具，统一缓存穿透、互斥锁、逻辑过期三种读取策略，
+ * 可选叠加进程内一级缓存，并按 key 前缀记录命中统计
+ */
+@Slf4j
+@Component
+public class CacheClient {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedisTemplate<String, byte[]> byteRedisTemplate;
+    @Resource
+    private CacheCodec defaultCodec;
+    @Resource
+    private LocalCache localCache;
+    @Resource
+    private CacheMetrics cacheMetrics;
+    @Resource
+    private CacheProperties cacheProperties;
+    @Resource
+    private CacheRebuildExecutor cacheRebuildExecutor;
+
+    private static final long REBUILD_POLL_MILLIS = 20;
+    private static final byte[] NULL_VALUE = new byte[0];
+    private static final Object MISSING = new Object();
+    /**
+     * 逻辑过期数据的物理过期时间为逻辑过期时间的倍数，热点数据会在逻辑过期后被重建或预热续期，
+     * 长期无人访问的数据则由 Redis 自动清理
+     */
+    private static final int LOGICAL_PHYSICAL_TTL_FACTOR = 2;
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT;
+    static {
+        UNLOCK_SCRIPT = new DefaultRedisScript<>();
+        UNLOCK_SCRIPT.setLocation(new ClassPathResource("unlock.lua"));
+        UNLOCK_SCRIPT.setResultType(Long.class);
+    }
+
+    private final SingleFlight<Object> singleFlight = new SingleFlight<>();
+
+    public void set(String key, Object value, Long time, TimeUnit unit) {
+        set(key, value, time, unit, defaultCodec);
+    }
+
+    public void setWithLogicalExpire(String key, Object value, Long time, TimeUnit unit) {
+        setWithLogicalExpire(key, value, time, unit, defaultCodec);
+    }
+
+    /**
+     * 删除缓存，并通知所有节点失效本地缓存
+     */
+    public void evict(String keyPrefix, Object id) {
+        String key = keyPrefix + id;
+        stringRedisTemplate.delete(key);
+        localCache.evict(key);
+    }
+
+    /**
+     * 按照 spec 中配置的策略读取缓存
+     */
+    public <ID, R> R get(CacheSpec<ID, R> spec, ID id) {
+        //布隆过滤器判断一定不存在时直接返回，不访问Redis和数据库
+        if (spec.getFilter() != null && !spec.getFilter().test(id)) {
+            cacheMetrics.of(spec.getKeyPrefix()).filterReject();
+            return null;
+        }
+        switch (spec.getStrategy()) {
+            case PASS_THROUGH:
+                return queryWithPassThrough(spec, id);
+            case LOGICAL_EXPIRE:
+                return queryWithLogicalExpire(spec, id);
+            case MUTEX:
+            default:
+                return queryWithMutex(spec, id);
+        }
+    }
+
+    public <ID, R> R queryWithPassThrough(CacheSpec<ID, R> spec, ID id) {
+        String key = spec.key(id);
+        CacheMetrics.Counter counter = cacheMetrics.of(spec.getKeyPrefix());
+        //1.查询本地缓存
+        R local = getLocal(spec, key, counter);
+        if (local != null) {
+            return local;
+        }
+        //2.查询Redis
+        byte[] bytes = byteRedisTemplate.opsForValue().get(key);
+        if (bytes != null && bytes.length > 0) {
+            R r = codec(spec).decode(bytes, spec.getType());
+            //2.1 无法识别的旧格式按未命中处理，重新加载后覆盖
+            if (r != null) {
+                counter.redisHit();
+                putLocal(spec, key, r);
+                return r;
+            }
+        } else if (bytes != null) {
+            //3.命中的是空值
+            counter.redisHit();
+            return null;
+        }
+        counter.redisMiss();
+        //4.回源数据库并写入缓存
+        return loadAndCache(spec, id);
+    }
+
+    public <ID, R> R queryWithMutex(CacheSpec<ID, R> spec, ID id) {
+        String key = spec.key(id);
+        CacheMetrics.Counter counter = cacheMetrics.of(spec.getKeyPrefix());
+        //1.查询本地缓存
+        R local = getLocal(spec, key, counter);
+        if (local != null) {
+            return local;
+        }
+        //2.查询Redis
+        byte[] bytes = byteRedisTemplate.opsForValue().get(key);
+        if (bytes != null && bytes.length > 0) {
+            R r = codec(spec).decode(bytes, spec.getType());
+            if (r != null) {
+                counter.redisHit();
+                putLocal(spec, key, r);
+                return r;
+            }
+        } else if (bytes != null) {
+            counter.redisHit();
+            return null;
+        }
+        counter.redisMiss();
+        //3.同一节点内的并发未命中合并为一次重建，其余线程等待重建完成后被唤醒
+        try {
+            @SuppressWarnings("unchecked")
+            R r = (R) singleFlight.execute(key, () -> rebuildWithMutex(spec, id),
+                    cacheProperties.getRebuildWaitMillis(), TimeUnit.MILLISECONDS);
+            return r;
+        } catch (TimeoutException e) {
+            //3.1 等待超时，降级返回本地的过期副本
+            return staleOrFail(key);
+        }
+    }
+
+    public <ID, R> R queryWithLogicalExpire(CacheSpec<ID, R> spec, ID id) {
+        String key = spec.key(id);
+        CacheMetrics.Counter counter = cacheMetrics.of(spec.getKeyPrefix());
+        //1.查询本地缓存，本地缓存中保存的是整个RedisData，以便判断逻辑过期
+        RedisData redisData = spec.isLocalCache() ? localCache.get(key, RedisData.class) : null;
+        if (redisData != null && redisData.getExpireTime().isAfter(LocalDateTime.now())) {
+            counter.localHit();
+        } else {
+            //1.1 本地副本已逻辑过期时以Redis为准，其他节点可能已经完成重建
+            if (spec.isLocalCache()) {
+                counter.localMiss();
+            }
+            //2.查询Redis
+            byte[] bytes = byteRedisTemplate.opsForValue().get(key);
+            if (bytes != null && bytes.length == 0) {
+                //2.1 命中的是空值
+                counter.redisHit();
+                return null;
+            }
+            redisData = bytes == null ? null : codec(spec).decodeLogical(bytes, spec.getType());
+            if (redisData == null) {
+                //2.2 未命中，说明尚未预热或已被删除，合并并发请求后加锁同步回源
+                counter.redisMiss();
+                try {
+                    @SuppressWarnings("unchecked")
+                    R r = (R) singleFlight.execute(key, () -> rebuildWithMutex(spec, id),
+                            cacheProperties.getRebuildWaitMillis(), TimeUnit.MILLISECONDS);
+                    return r;
+                } catch (TimeoutException e) {
+                    return staleOrFail(key);
+                }
+            }
+            counter.redisHit();
+            if (spec.isLocalCache()) {
+                localCache.put(key, redisData);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        R r = (R) redisData.getData();
+        //3.未过期且未被选中提前刷新，直接返回
+        if (redisData.getExpireTime().isAfter(LocalDateTime.now()) && !shouldRefreshEarly(spec, redisData)) {
+            return r;
+        }
+        //4.已过期或提前刷新，提交异步重建，当前线程直接返回旧数据；本节点内同一个key只会排队一次
+        LocalDateTime observed = redisData.getExpireTime();
+        cacheRebuildExecutor.submit(key, () -> rebuildLogical(spec, id, observed));
+        return r;
+    }
+
+    /**
+     * 概率性提前刷新（XFetch）：越接近逻辑过期、重建耗时越长，被选中提前刷新的概率越大，
+     * 同一时间写入的大量 key 会在过期前被陆续刷新，而不是在过期时集中重建
+     */
+    private boolean shouldRefreshEarly(CacheSpec<?, ?> spec, RedisData redisData) {
+        Double beta = cacheProperties.getEarlyRefreshBeta().get(spec.name());
+        Long recomputeMillis = redisData.getRecomputeMillis();
+        if (beta == null || beta <= 0 || recomputeMillis == null || recomputeMillis <= 0) {
+            return false;
+        }
+        long remainingMillis = Duration.between(LocalDateTime.now(), redisData.getExpireTime()).toMillis();
+        return shouldRefreshEarly(remainingMillis, recomputeMillis, beta, ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * XFetch 的判断条件：-recompute * beta * ln(random) >= 剩余有效期
+     *
+     * @param random (0, 1) 之间的随机数
+     */
+    static boolean shouldRefreshEarly(long remainingMillis, long recomputeMillis, double beta, double random) {
+        return -recomputeMillis * beta * Math.log(random) >= remainingMillis;
+    }
+
+    /**
+     * 逻辑过期数据的异步重建，获取互斥锁后由一个节点执行
+     */
+    private <ID, R> void rebuildLogical(CacheSpec<ID, R> spec, ID id, LocalDateTime observed) {
+        String key = spec.key(id);
+        String lockKey = spec.lockKey(id);
+        String token = tryLock(lockKey);
+        if (token == null) {
+            //其他节点正在重建
+            return;
+        }
+        try {
+            //再次检查，过期时间比发起重建时看到的更晚，说明其他节点已经完成重建
+            byte[] bytes = byteRedisTemplate.opsForValue().get(key);
+            RedisData redisData = bytes == null || bytes.length == 0 ? null : codec(spec).decodeLogical(bytes, spec.getType());
+            if (redisData == null || !redisData.getExpireTime().isAfter(observed)) {
+                long begin = System.currentTimeMillis();
+                R r = spec.getDbFallback().apply(id);
+                cacheMetrics.of(spec.getKeyPrefix()).dbLoad();
+                if (r == null) {
+                    //数据已被删除，写入空值
+                    byteRedisTemplate.opsForValue().set(key, NULL_VALUE, spec.getNullTtl(), spec.getUnit());
+                } else {
+                    setLogical(spec, key, r, System.currentTimeMillis() - begin);
+                }
+            }
+            localCache.invalidate(key);
+        } finally {
+            unlock(lockKey, token);
+        }
+    }
+
+    /**
+     * 利用Redis互斥锁做跨节点的缓存重建，只由SingleFlight的领头线程调用
+     */
+    private <ID, R> R rebuildWithMutex(CacheSpec<ID, R> spec, ID id) {
+        String key = spec.key(id);
+        String lockKey = spec.lockKey(id);
+        long deadline = System.currentTimeMillis() + cacheProperties.getRebuildWaitMillis();
+        while (true) {
+            //1.尝试获取互斥锁
+            String token = tryLock(lockKey);
+            if (token != null) {
+                try {
+                    //2.获取成功，再次检查Redis，其他节点可能刚刚完成重建
+                    Object cached = readBack(spec, key);
+                    if (cached != MISSING) {
+                        @SuppressWarnings("unchecked")
+                        R r = (R) cached;
+                        return r;
+                    }
+                    //3.回源数据库并写入缓存
+                    return loadAndCache(spec, id);
+                } finally {
+                    unlock(lockKey, token);
+                }
+            }
+            //4.其他节点正在重建，只有本节点的领头线程短暂等待后查看重建结果
+            if (System.currentTimeMillis() >= deadline) {
+                return staleOrFail(key);
+            }
+            try {
+                Thread.sleep(REBUILD_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return staleOrFail(key);
+            }
+            Object cached = readBack(spec, key);
+            if (cached != MISSING) {
+                @SuppressWarnings("unchecked")
+                R r = (R) cached;
+                return r;
+            }
+        }
+    }
+
+    /**
+     * 批量预热逻辑过期缓存：先用 MGET 读取现有数据，只有缺失或即将逻辑过期的才批量回源，
+     * 回源结果通过 pipeline 写回 Redis，同时填充本节点的一级缓存
+     *
+     * @param refreshAhead 剩余逻辑有效期不足该时长时提前刷新
+     * @return 回源数据库的条数
+     */
+    public <ID, R> int warmUp(CacheSpec<ID, R> spec, List<ID> ids, Duration refreshAhead) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        CacheCodec codec = codec(spec);
+        //1.批量读取Redis，筛选出需要回源的id
+        List<byte[]> values = byteRedisTemplate.opsForValue().multiGet(
+                ids.stream().map(spec::key).collect(Collectors.toList()));
+        LocalDateTime threshold = LocalDateTime.now().plus(refreshAhead);
+        List<ID> missing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] bytes = values == null ? null : values.get(i);
+            if (bytes != null && bytes.length == 0) {
+                // 空值说明数据不存在，无需预热
+                continue;
+            }
+            RedisData redisData = bytes == null ? null : codec.decodeLogical(bytes, spec.getType());
+            if (redisData == null || !redisData.getExpireTime().isAfter(threshold)) {
+                missing.add(ids.get(i));
+            } else if (spec.isLocalCache()) {
+                localCache.put(spec.key(ids.get(i)), redisData);
+            }
+        }
+        if (missing.isEmpty()) {
+            return 0;
+        }
+        //2.批量回源数据库
+        long begin = System.currentTimeMillis();
+        Map<ID, R> loaded = spec.getBatchFallback().apply(missing);
+        cacheMetrics.of(spec.getKeyPrefix()).dbLoad(loaded.size());
+        //3.通过pipeline一次性写回Redis
+        writeBatch(spec, loaded, Collections.emptyList(), System.currentTimeMillis() - begin);
+        return loaded.size();
+    }
+
+    /**
+     * 批量查询：本地缓存之后用一次 MGET 读取Redis，未命中的id一次性回源数据库，
+     * 再通过pipeline回填缓存，结果按ids的顺序返回，不存在的数据不出现在结果中
+     */
+    public <ID, R> List<R> multiGet(CacheSpec<ID, R> spec, List<ID> ids) {
+        CacheMetrics.Counter counter = cacheMetrics.of(spec.getKeyPrefix());
+        CacheCodec codec = codec(spec);
+        boolean logical = spec.getStrategy() == CacheStrategy.LOGICAL_EXPIRE;
+        Map<ID, R> found = new HashMap<>(ids.size());
+        //1.过滤掉一定不存在的id，并查询本地缓存
+        List<ID> redisIds = new ArrayList<>();
+        for (ID id : new LinkedHashSet<>(ids)) {
+            if (spec.getFilter() != null && !spec.getFilter().test(id)) {
+                counter.filterReject();
+                continue;
+            }
+            R local = logical ? getLocalLogical(spec, spec.key(id), counter) : getLocal(spec, spec.key(id), counter);
+            if (local != null) {
+                found.put(id, local);
+            } else {
+                redisIds.add(id);
+            }
+        }
+        if (redisIds.isEmpty()) {
+            return ordered(ids, found);
+        }
+        //2.一次MGET查询Redis
+        List<byte[]> values = byteRedisTemplate.opsForValue().multiGet(
+                redisIds.stream().map(spec::key).collect(Collectors.toList()));
+        List<ID> missing = new ArrayList<>();
+        for (int i = 0; i < redisIds.size(); i++) {
+            ID id = redisIds.get(i);
+            String key = spec.key(id);
+            byte[] bytes = values == null ? null : values.get(i);
+            if (bytes != null && bytes.length == 0) {
+                //2.1 空值，数据不存在
+                counter.redisHit();
+                continue;
+            }
+            R r = null;
+            if (bytes != null && logical) {
+                RedisData redisData = codec.decodeLogical(bytes, spec.getType());
+                if (redisData != null) {
+                    @SuppressWarnings("unchecked")
+                    R data = (R) redisData.getData();
+                    r = data;
+                    if (spec.isLocalCache()) {
+                        localCache.put(key, redisData);
+                    }
+                    //2.2 逻辑过期的数据先返回，异步重建
+                    if (!redisData.getExpireTime().isAfter(LocalDateTime.now()) || shouldRefreshEarly(spec, redisData)) {
+                        LocalDateTime observed = redisData.getExpireTime();
+                        cacheRebuildExecutor.submit(key, () -> rebuildLogical(spec, id, observed));
+                    }
+                }
+            } else if (bytes != null) {
+                r = codec.decode(bytes, spec.getType());
+                putLocal(spec, key, r);
+            }
+            if (r != null) {
+                counter.redisHit();
+                found.put(id, r);
+            } else {
+                counter.redisMiss();
+                missing.add(id);
+            }
+        }
+        if (missing.isEmpty()) {
+            return ordered(ids, found);
+        }
+        //3.未命中的id一次性回源数据库
+        long begin = System.currentTimeMillis();
+        Map<ID, R> loaded = spec.getBatchFallback().apply(missing);
+        counter.dbLoad(missing.size());
+        found.putAll(loaded);
+        //4.pipeline回填缓存，不存在的id写入空值
+        List<ID> notFound = missing.stream().filter(id -> !loaded.containsKey(id)).collect(Collectors.toList());
+        writeBatch(spec, loaded, notFound, System.currentTimeMillis() - begin);
+        return ordered(ids, found);
+    }
+
+    /**
+     * 通过pipeline批量写入缓存，并填充本地缓存
+     *
+     * @param loadMillis 批量回源的总耗时，平摊到每条数据作为重建耗时
+     */
+    private <ID, R> void writeBatch(CacheSpec<ID, R> spec, Map<ID, R> loaded, List<ID> notFound, long loadMillis) {
+        CacheCodec codec = codec(spec);
+        boolean logical = spec.getStrategy() == CacheStrategy.LOGICAL_EXPIRE;
+        long recomputeMillis = loaded.isEmpty() ? 0 : Math.max(1, loadMillis / loaded.size());
+        long nullSeconds = spec.getUnit().toSeconds(spec.getNullTtl());
+        byteRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            loaded.forEach((id, r) -> {
+                String key = spec.key(id);
+                // 每条数据单独计算带抖动的过期时间，避免同一批写入的数据同时过期
+                long seconds = ttlSeconds(spec);
+                if (logical) {
+                    RedisData redisData = newRedisData(r, seconds, recomputeMillis);
+                    connection.setEx(rawKey(key), seconds * LOGICAL_PHYSICAL_TTL_FACTOR, codec.encodeLogical(redisData));
+                    if (spec.isLocalCache()) {
+                        localCache.put(key, redisData);
+                    }
+                } else {
+                    connection.setEx(rawKey(key), seconds, codec.encode(r));
+                    putLocal(spec, key, r);
+                }
+            });
+            for (ID id : notFound) {
+                connection.setEx(rawKey(spec.key(id)), nullSeconds, NULL_VALUE);
+            }
+            return null;
+        });
+    }
+
+    private static <ID, R> List<R> ordered(List<ID> ids, Map<ID, R> found) {
+        List<R> result = new ArrayList<>(found.size());
+        for (ID id : ids) {
+            R r = found.get(id);
+            if (r != null) {
+                result.add(r);
+            }
+        }
+        return result;
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private <ID, R> R loadAndCache(CacheSpec<ID, R> spec, ID id) {
+        String key = spec.key(id);
+        long begin = System.currentTimeMillis();
+        R r = spec.getDbFallback().apply(id);
+        cacheMetrics.of(spec.getKeyPrefix()).dbLoad();
+        if (r == null) {
+            //不存在，Redis中存入空值
+            byteRedisTemplate.opsForValue().set(key, NULL_VALUE, spec.getNullTtl(), spec.getUnit());
+            return null;
+        }
+        if (spec.getStrategy() == CacheStrategy.LOGICAL_EXPIRE) {
+            RedisData redisData = setLogical(spec, key, r, System.currentTimeMillis() - begin);
+            if (spec.isLocalCache()) {
+                localCache.put(key, redisData);
+            }
+        } else {
+            set(key, r, ttlSeconds(spec), TimeUnit.SECONDS, codec(spec));
+            putLocal(spec, key, r);
+        }
+        return r;
+    }
+
+    /**
+     * 重建过程中重新读取Redis
+     *
+     * @return 不存在或无法识别时返回 MISSING，空值返回 null
+     */
+    private <ID, R> Object readBack(CacheSpec<ID, R> spec, String key) {
+        byte[] bytes = byteRedisTemplate.opsForValue().get(key);
+        if (bytes == null) {
+            return MISSING;
+        }
+        if (bytes.length == 0) {
+            return null;
+        }
+        if (spec.getStrategy() == CacheStrategy.LOGICAL_EXPIRE) {
+            RedisData redisData = codec(spec).decodeLogical(bytes, spec.getType());
+            if (redisData == null) {
+                return MISSING;
+            }
+            if (spec.isLocalCache()) {
+                localCache.put(key, redisData);
+            }
+            return redisData.getData();
+        }
+        R r = codec(spec).decode(bytes, spec.getType());
+        if (r == null) {
+            return MISSING;
+        }
+        putLocal(spec, key, r);
+        return r;
+    }
+
+    private void set(String key, Object value, Long time, TimeUnit unit, CacheCodec codec) {
+        byteRedisTemplate.opsForValue().set(key, codec.encode(value), time, unit);
+    }
+
+    private void setWithLogicalExpire(String key, Object value, Long time, TimeUnit unit, CacheCodec codec) {
+        RedisData redisData = newRedisData(value, unit.toSeconds(time), null);
+        byteRedisTemplate.opsForValue().set(key, codec.encodeLogical(redisData),
+                unit.toSeconds(time) * LOGICAL_PHYSICAL_TTL_FACTOR, TimeUnit.SECONDS);
+    }
+
+    /**
+     * 按 spec 写入逻辑过期数据，过期时间带随机抖动，并记录本次重建耗时供提前刷新使用
+     */
+    private <ID, R> RedisData setLogical(CacheSpec<ID, R> spec, String key, R value, long recomputeMillis) {
+        long seconds = ttlSeconds(spec);
+        RedisData redisData = newRedisData(value, seconds, Math.max(1, recomputeMillis));
+        byteRedisTemplate.opsForValue().set(key, codec(spec).encodeLogical(redisData),
+                seconds * LOGICAL_PHYSICAL_TTL_FACTOR, TimeUnit.SECONDS);
+        return redisData;
+    }
+
+    private static RedisData newRedisData(Object value, long seconds, Long recomputeMillis) {
+        RedisData redisData = new RedisData();
+        redisData.setData(value);
+        redisData.setExpireTime(LocalDateTime.now().plusSeconds(seconds));
+        redisData.setRecomputeMillis(recomputeMillis);
+        return redisData;
+    }
+
+    /**
+     * 过期时间加上 [0, ttl * ttlJitter) 的随机值，让同时写入的数据分散过期
+     */
+    private static long ttlSeconds(CacheSpec<?, ?> spec) {
+        long seconds = spec.getUnit().toSeconds(spec.getTtl());
+        long jitter = (long) (seconds * spec.getTtlJitter());
+        return jitter > 0 ? seconds + ThreadLocalRandom.current().nextLong(jitter) : seconds;
+    }
+
+    private <ID, R> R getLocal(CacheSpec<ID, R> spec, String key, CacheMetrics.Counter counter) {
+        if (!spec.isLocalCache()) {
+            return null;
+        }
+        @SuppressWarnings("unchecked")
+        R r = (R) localCache.get(key, Object.class);
+        if (r != null) {
+            counter.localHit();
+        } else {
+            counter.localMiss();
+        }
+        return r;
+    }
+
+    /**
+     * 逻辑过期缓存的本地副本，只返回未逻辑过期的数据
+     */
+    private <ID, R> R getLocalLogical(CacheSpec<ID, R> spec, String key, CacheMetrics.Counter counter) {
+        if (!spec.isLocalCache()) {
+            return null;
+        }
+        RedisData redisData = localCache.get(key, RedisData.class);
+        if (redisData != null && redisData.getExpireTime().isAfter(LocalDateTime.now())) {
+            counter.localHit();
+            @SuppressWarnings("unchecked")
+            R r = (R) redisData.getData();
+            return r;
+        }
+        counter.localMiss();
+        return null;
+    }
+
+    private <ID, R> void putLocal(CacheSpec<ID, R> spec, String key, R r) {
+        if (r != null && spec.isLocalCache()) {
+            localCache.put(key, r);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <R> R staleOrFail(String key) {
+        Object stale = localCache.getStale(key, Object.class);
+        if (stale == null) {
+            throw new RuntimeException("缓存重建超时：" + key);
+        }
+        if (stale instanceof RedisData) {
+            stale = ((RedisData) stale).getData();
+        }
+        return (R) stale;
+    }
+
+    private CacheCodec codec(CacheSpec<?, ?> spec) {
+        return spec.getCodec() != null ? spec.getCodec() : defaultCodec;
+    }
+
+    /**
+     * 获取重建锁，成功时返回锁的持有者标识，释放时据此校验，避免误删其他线程或节点的锁
+     */
+    private String tryLock(String lockKey) {
+        String token = UUID.randomUUID().toString(true);
+        Boolean success = stringRedisTemplate.opsForValue().setIfAbsent(lockKey, token, CACHE_REBUILD_LOCK_TTL, TimeUnit.SECONDS);
+        return Boolean.TRUE.equals(success) ? token : null;
+    }
+
+    private void unlock(String lockKey, String token) {
+        stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+    }
+}
@@ -0,0 +1,24 @@
+package com.hmdp.utils;
+
+import java.lang.reflect.Type;
+
+/**
+ * 缓存值的编解码方式，CacheClient 通过它读写 Redis 中的字节数组
+ */
+public interface CacheCodec {
+
+    byte[] encode(Object value);
+
+    /**
+     * @return 无法识别的数据（格式或结构版本不匹配）返回 null，调用方按缓存未命中处理
+     */
+    <T> T decode(byte[] bytes, Type type);
+
+    byte[] encodeLogical(RedisData redisData);
+
+    /**
+     * 解码逻辑过期的包装对象，data 直接转换为目标类型
+     * @return 无法识别的数据，以及不带逻辑过期时间的普通缓存值，返回 null
+     */
+    RedisData decodeLogical(byte[] bytes, Type type);
+}
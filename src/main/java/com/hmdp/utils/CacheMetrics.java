@@ -0,0 +1,87 @@
+package com.hmdp.utils;
+
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 key 前缀统计各级缓存的命中情况
+ */
+@Component
+public class CacheMetrics {
+
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    public Counter of(String keyPrefix) {
+        return counters.computeIfAbsent(keyPrefix, k -> new Counter());
+    }
+
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        counters.forEach((prefix, counter) -> result.put(prefix, counter.snapshot()));
+        return result;
+    }
+
+    public static class Counter {
+        private final LongAdder localHit = new LongAdder();
+        private final LongAdder localMiss = new LongAdder();
+        private final LongAdder redisHit = new LongAdder();
+        private final LongAdder redisMiss = new LongAdder();
+        private final LongAdder dbLoad = new LongAdder();
+        private final LongAdder filterReject = new LongAdder();
+
+        public void localHit() {
+            localHit.increment();
+        }
+
+        public void localMiss() {
+            localMiss.increment();
+        }
+
+        public void redisHit() {
+            redisHit.increment();
+        }
+
+        public void redisMiss() {
+            redisMiss.increment();
+        }
+
+        public void dbLoad() {
+            dbLoad.increment();
+        }
+
+        public void dbLoad(long count) {
+            dbLoad.add(count);
+        }
+
+        public void filterReject() {
+            filterReject.increment();
+        }
+
+        private Map<String, Object> snapshot() {
+            long lh = localHit.sum();
+            long lm = localMiss.sum();
+            long rh = redisHit.sum();
+            long rm = redisMiss.sum();
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("localHit", lh);
+            map.put("localMiss", lm);
+            map.put("localHitRate", rate(lh, lm));
+            map.put("redisHit", rh);
+            map.put("redisMiss", rm);
+            map.put("redisHitRate", rate(rh, rm));
+            map.put("dbLoad", dbLoad.sum());
+            map.put("filterReject", filterReject.sum());
+            return map;
+        }
+
+        private static double rate(long hit, long miss) {
+            long total = hit + miss;
+            return total == 0 ? 0D : (double) hit / total;
+        }
+    }
+}
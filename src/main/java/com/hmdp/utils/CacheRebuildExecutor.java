@@ -0,0 +1,165 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.hmdp.config.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 逻辑过期缓存共用的异步重建线程池：
+ * 同一个 key 排队中或执行中的重建只保留一个；队列有上限，满了以后按配置丢弃或由调用线程执行；
+ * 排队的任务按 key 的热度优先执行；随 Spring 容器关闭，并统计队列长度、耗时与失败次数
+ */
+@Slf4j
+@Component
+public class CacheRebuildExecutor {
+
+    public static final String POLICY_DROP = "drop";
+    public static final String POLICY_CALLER_RUNS = "caller-runs";
+
+    @Resource
+    private CacheProperties cacheProperties;
+    @Resource
+    private HotKeyDetector hotKeyDetector;
+
+    private ThreadPoolExecutor executor;
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder deduplicated = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder totalMillis = new LongAdder();
+    private final LongAccumulator maxMillis = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    public void init() {
+        CacheProperties.Rebuild rebuild = cacheProperties.getRebuild();
+        // 优先队列本身没有容量限制，由 submit 控制排队任务数
+        executor = new ThreadPoolExecutor(rebuild.getThreads(), rebuild.getThreads(), 0L, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(), new NamedThreadFactory("cache-rebuild-", false));
+    }
+
+    /**
+     * 提交重建任务
+     *
+     * @param key 缓存 key，同一个 key 同时只会有一个重建任务
+     * @return 是否已提交或已执行，被去重或丢弃时返回 false
+     */
+    public boolean submit(String key, Runnable task) {
+        //1.同一个key已有重建在排队或执行，直接忽略
+        if (!pending.add(key)) {
+            deduplicated.increment();
+            return false;
+        }
+        Task rebuildTask = new Task(key, hotKeyDetector.score(key), sequence.incrementAndGet(), task);
+        //2.队列已满时按策略处理
+        if (executor.isShutdown() || executor.getQueue().size() >= cacheProperties.getRebuild().getQueueCapacity()) {
+            if (!executor.isShutdown() && POLICY_CALLER_RUNS.equals(cacheProperties.getRebuild().getRejectionPolicy())) {
+                callerRuns.increment();
+                rebuildTask.run();
+                return true;
+            }
+            pending.remove(key);
+            dropped.increment();
+            log.warn("缓存重建队列已满，丢弃重建任务，key：{}", key);
+            return false;
+        }
+        //3.检查之后线程池仍可能被关闭，拒绝时释放 key，按丢弃处理，调用方继续返回旧数据
+        try {
+            executor.execute(rebuildTask);
+        } catch (RejectedExecutionException e) {
+            pending.remove(key);
+            dropped.increment();
+            log.warn("缓存重建线程池已关闭，丢弃重建任务，key：{}", key);
+            return false;
+        }
+        submitted.increment();
+        return true;
+    }
+
+    public Map<String, Object> stats() {
+        long done = succeeded.sum() + failed.sum();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("queueDepth", executor.getQueue().size());
+        map.put("active", executor.getActiveCount());
+        map.put("submitted", submitted.sum());
+        map.put("deduplicated", deduplicated.sum());
+        map.put("dropped", dropped.sum());
+        map.put("callerRuns", callerRuns.sum());
+        map.put("succeeded", succeeded.sum());
+        map.put("failed", failed.sum());
+        map.put("avgMillis", done == 0 ? 0D : (double) totalMillis.sum() / done);
+        map.put("maxMillis", maxMillis.get());
+        return map;
+    }
+
+    /**
+     * 停止接收新任务，等待已排队的重建完成
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        executor.shutdown();
+        if (!executor.awaitTermination(cacheProperties.getRebuild().getShutdownTimeoutSeconds(), TimeUnit.SECONDS)) {
+            log.warn("缓存重建线程池未能按时关闭，剩余任务：{}", executor.shutdownNow().size());
+        }
+    }
+
+    private class Task implements Runnable, Comparable<Task> {
+        private final String key;
+        private final long score;
+        private final long seq;
+        private final Runnable delegate;
+
+        private Task(String key, long score, long seq, Runnable delegate) {
+            this.key = key;
+            this.score = score;
+            this.seq = seq;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void run() {
+            long begin = System.currentTimeMillis();
+            try {
+                delegate.run();
+                succeeded.increment();
+            } catch (Exception e) {
+                failed.increment();
+                log.error("缓存重建失败，key：{}", key, e);
+            } finally {
+                pending.remove(key);
+                long cost = System.currentTimeMillis() - begin;
+                totalMillis.add(cost);
+                maxMillis.accumulate(cost);
+            }
+        }
+
+        /**
+         * 热度高的先执行，热度相同时先提交的先执行
+         */
+        @Override
+        public int compareTo(Task o) {
+            int c = Long.compare(o.score, score);
+            return c != 0 ? c : Long.compare(seq, o.seq);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.hmdp.utils;
+
+import lombok.Builder;
+import lombok.Getter;
+
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.hmdp.utils.RedisConstants.CACHE_NULL_TTL;
+
+/**
+ * 一类缓存数据的读取规则：key 前缀、目标类型、数据库回源函数、过期时间与策略
+ *
+ * @param <ID> 主键类型
+ * @param <R>  缓存的数据类型
+ */
+@Getter
+@Builder
+public class CacheSpec<ID, R> {
+
+    private static final String CACHE_PREFIX = "cache:";
+
+    /**
+     * 缓存 key 前缀，例如 cache:shop:
+     */
+    private final String keyPrefix;
+    /**
+     * 缓存数据的类型，集合类型可以用 hutool 的 TypeReference 获取
+     */
+    private final Type type;
+    /**
+     * 缓存未命中时的回源函数
+     */
+    private final Function<ID, R> dbFallback;
+    /**
+     * 批量回源函数，用于预热等批量场景，返回结果中不包含不存在的 id
+     */
+    private final Function<List<ID>, Map<ID, R>> batchFallback;
+    /**
+     * 查询缓存前的存在性判断，例如布隆过滤器，返回 false 时直接视为不存在
+     */
+    private final Predicate<ID> filter;
+    /**
+     * 有效数据的过期时间，逻辑过期策略下为逻辑过期时间
+     */
+    private final Long ttl;
+    /**
+     * 过期时间的随机抖动比例，实际过期时间在 [ttl, ttl * (1 + ttlJitter)) 之间
+     */
+    private final double ttlJitter;
+    @Builder.Default
+    private final Long nullTtl = CACHE_NULL_TTL;
+    @Builder.Default
+    private final TimeUnit unit = TimeUnit.MINUTES;
+    @Builder.Default
+    private final CacheStrategy strategy = CacheStrategy.MUTEX;
+    /**
+     * 是否启用进程内一级缓存，只有返回后不会被修改的对象才能开启
+     */
+    private final boolean localCache;
+    /**
+     * 自定义编解码方式，为空时使用 CompositeCacheCodec
+     */
+    private final CacheCodec codec;
+
+    public String key(ID id) {
+        return keyPrefix + id;
+    }
+
+    /**
+     * 重建锁的 key，cache:shop:1 对应 lock:shop:1
+     */
+    public String lockKey(ID id) {
+        String name = keyPrefix.startsWith(CACHE_PREFIX) ? keyPrefix.substring(CACHE_PREFIX.length()) : keyPrefix;
+        return "lock:" + name + id;
+    }
+
+    /**
+     * 缓存名称，用于按缓存读取配置，cache:shop: 对应 shop
+     */
+    public String name() {
+        String name = keyPrefix.startsWith(CACHE_PREFIX) ? keyPrefix.substring(CACHE_PREFIX.length()) : keyPrefix;
+        return name.endsWith(":") ? name.substring(0, name.length() - 1) : name;
+    }
+}
@@ -0,0 +1,19 @@
+package com.hmdp.utils;
+
+/**
+ * 缓存读取策略
+ */
+public enum CacheStrategy {
+    /**
+     * 缓存空值解决缓存穿透
+     */
+    PASS_THROUGH,
+    /**
+     * 互斥锁解决缓存击穿，同时缓存空值
+     */
+    MUTEX,
+    /**
+     * 逻辑过期解决缓存击穿，过期后异步重建并返回旧数据
+     */
+    LOGICAL_EXPIRE
+}
@@ -0,0 +1,209 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.config.CacheProperties;
+import com.hmdp.entity.Shop;
+import com.hmdp.mapper.ShopMapper;
+import com.hmdp.service.IShopService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.LOCK_WARM_UP_KEY;
+
+/**
+ * 逻辑过期缓存的预热：启动时和定时任务中，按访问统计挑选最热的店铺，
+ * 分批并行回源后用 pipeline 写入 Redis，节点上线时即拥有热的缓存
+ */
+@Slf4j
+@Component
+public class CacheWarmer implements SmartLifecycle {
+
+    public static final String SHOP = "shop";
+    /**
+     * 早于 Web 服务器的启动阶段（WebServerStartStopLifecycle 为 Integer.MAX_VALUE - 1）
+     */
+    private static final int PHASE = Integer.MAX_VALUE - 2;
+
+    @Resource
+    private IShopService shopService;
+    @Resource
+    private ShopMapper shopMapper;
+    @Resource
+    private AccessRecorder accessRecorder;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private CacheProperties cacheProperties;
+
+    private ExecutorService executor;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile Progress progress = new Progress();
+    private volatile boolean started;
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(cacheProperties.getWarmUp().getParallelism(),
+                new NamedThreadFactory("cache-warm-up-", true));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 启动时在 Web 服务器开始接收请求之前同步预热，预热失败只记录日志，不阻止启动
+     */
+    @Override
+    public void start() {
+        started = true;
+        if (cacheProperties.getWarmUp().isEnabled()) {
+            warmUp();
+        }
+    }
+
+    @Override
+    public void stop() {
+        started = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return started;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    /**
+     * 定时预热，补充新出现的热点并续期即将逻辑过期的数据
+     */
+    @Scheduled(cron = "${hmdp.cache.warm-up.cron:0 */10 * * * ?}")
+    public void warmUpOnSchedule() {
+        if (cacheProperties.getWarmUp().isEnabled()) {
+            warmUp();
+        }
+    }
+
+    /**
+     * 异步触发一次预热，供运维接口调用
+     */
+    public void trigger() {
+        CompletableFuture.runAsync(this::warmUp);
+    }
+
+    public Map<String, Object> progress() {
+        return progress.snapshot();
+    }
+
+    public void warmUp() {
+        // 1.本节点内同一时间只运行一次，多个节点之间通过分布式锁互斥
+        if (!running.compareAndSet(false, true)) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_WARM_UP_KEY);
+        try {
+            if (!lock.tryLock()) {
+                log.debug("其他节点正在预热缓存，跳过本次预热");
+                return;
+            }
+            try {
+                doWarmUp();
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            progress.state = "FAILED";
+            log.error("缓存预热失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void doWarmUp() {
+        CacheProperties.WarmUp warmUp = cacheProperties.getWarmUp();
+        Progress current = new Progress();
+        current.startTime = LocalDateTime.now();
+        progress = current;
+        long begin = System.currentTimeMillis();
+        // 2.挑选热点id，还没有访问统计时按销量兜底
+        List<Long> ids = hotShopIds(warmUp.getTopN());
+        current.total = ids.size();
+        // 3.分批并行回源，每批完成后更新进度
+        Duration refreshAhead = Duration.ofSeconds(warmUp.getRefreshAheadSeconds());
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += warmUp.getBatchSize()) {
+            List<Long> batch = ids.subList(from, Math.min(from + warmUp.getBatchSize(), ids.size()));
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    current.loaded.addAndGet(shopService.warmUpCache(batch, refreshAhead));
+                } catch (Exception e) {
+                    current.failed.addAndGet(batch.size());
+                    log.warn("缓存预热批次失败，起始id：{}", batch.get(0), e);
+                } finally {
+                    int done = current.done.addAndGet(batch.size());
+                    log.debug("缓存预热进度：{}/{}", done, current.total);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+        current.endTime = LocalDateTime.now();
+        current.state = current.failed.get() > 0 ? "PARTIAL" : "DONE";
+        log.info("缓存预热完成，热点数：{}，回源数：{}，失败数：{}，耗时：{}ms",
+                current.total, current.loaded.get(), current.failed.get(), System.currentTimeMillis() - begin);
+    }
+
+    private List<Long> hotShopIds(int n) {
+        List<String> hot = accessRecorder.top(SHOP, n);
+        if (!hot.isEmpty()) {
+            return hot.stream().map(Long::valueOf).collect(Collectors.toList());
+        }
+        return shopMapper.selectObjs(new QueryWrapper<Shop>().select("id").orderByDesc("sold").last("limit " + n))
+                .stream().map(o -> ((Number) o).longValue()).collect(Collectors.toList());
+    }
+
+    private static class Progress {
+        private volatile String state = "RUNNING";
+        private volatile int total;
+        private volatile LocalDateTime startTime;
+        private volatile LocalDateTime endTime;
+        private final AtomicInteger done = new AtomicInteger();
+        private final AtomicInteger loaded = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+
+        private Map<String, Object> snapshot() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("state", startTime == null ? "IDLE" : state);
+            map.put("total", total);
+            map.put("done", done.get());
+            map.put("loaded", loaded.get());
+            map.put("failed", failed.get());
+            map.put("startTime", startTime);
+            map.put("endTime", endTime);
+            return map;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.CacheProperties;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.lang.reflect.Type;
+
+/**
+ * CacheClient 默认使用的编解码：按配置选择写入格式，读取时根据魔数识别格式。
+ * 迁移期间打开 migration，旧的 JSON 数据仍可读取；二进制不支持的类型始终使用 JSON。
+ */
+@Component
+public class CompositeCacheCodec implements CacheCodec {
+
+    private static final String FORMAT_BINARY = "binary";
+
+    @Resource
+    private CacheProperties cacheProperties;
+
+    private final JsonCacheCodec jsonCodec = new JsonCacheCodec();
+    private BinaryCacheCodec binaryCodec;
+
+    @PostConstruct
+    public void init() {
+        binaryCodec = new BinaryCacheCodec(cacheProperties.getCodec().getCompressThreshold());
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        return writeBinary(value) ? binaryCodec.encode(value) : jsonCodec.encode(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Type type) {
+        if (BinaryCacheCodec.isBinary(bytes)) {
+            return binaryCodec.decode(bytes, type);
+        }
+        return readJson(type) ? jsonCodec.decode(bytes, type) : null;
+    }
+
+    @Override
+    public byte[] encodeLogical(RedisData redisData) {
+        return writeBinary(redisData.getData()) ? binaryCodec.encodeLogical(redisData) : jsonCodec.encodeLogical(redisData);
+    }
+
+    @Override
+    public RedisData decodeLogical(byte[] bytes, Type type) {
+        if (BinaryCacheCodec.isBinary(bytes)) {
+            return binaryCodec.decodeLogical(bytes, type);
+        }
+        return readJson(type) ? jsonCodec.decodeLogical(bytes, type) : null;
+    }
+
+    private boolean writeBinary(Object value) {
+        return FORMAT_BINARY.equals(cacheProperties.getCodec().getWriteFormat()) && binaryCodec.supports(value);
+    }
+
+    private boolean readJson(Type type) {
+        CacheProperties.Codec codec = cacheProperties.getCodec();
+        return codec.isMigration() || !FORMAT_BINARY.equals(codec.getWriteFormat()) || !binaryCodec.supportsType(type);
+    }
+}
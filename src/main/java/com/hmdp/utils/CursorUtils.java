@@ -0,0 +1,39 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.codec.Base64;
+import cn.hutool.core.util.StrUtil;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 游标分页的游标编解码，游标对调用方不透明，内容为逗号分隔的若干字段
+ */
+public class CursorUtils {
+
+    private CursorUtils() {
+    }
+
+    public static String encode(Object... parts) {
+        return Base64.encodeUrlSafe(StrUtil.join(",", parts), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 解析出的字段，游标为空返回 null
+     * @throws IllegalArgumentException 游标格式错误或字段个数不符
+     */
+    public static String[] decode(String cursor, int expectedParts) {
+        if (StrUtil.isBlank(cursor)) {
+            return null;
+        }
+        String[] parts;
+        try {
+            parts = Base64.decodeStr(cursor, StandardCharsets.UTF_8).split(",", -1);
+        } catch (Exception e) {
+            throw new IllegalArgumentException("无效的游标");
+        }
+        if (parts.length != expectedParts) {
+            throw new IllegalArgumentException("无效的游标");
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,179 @@
+package com.hmdp.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的网格空间索引：按经纬度把坐标划分到固定大小的格子中，
+ * 查询时从所在格子向外逐圈扩展，只计算可能进入结果的格子中的点。
+ * 结果按 (距离, id) 升序排列，传入上一页最后一条即可继续向后翻页，
+ * 已经完整位于上一页范围内的圈会被直接跳过，每页的开销只与本页附近的点数有关。
+ */
+public class GeoGridIndex {
+
+    /**
+     * 与 Redis GEO 使用相同的地球半径，距离结果与 GEORADIUS 保持一致
+     */
+    private static final double EARTH_RADIUS_METERS = 6372797.560856;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS_METERS / 180;
+    private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::getDistance).thenComparingLong(Hit::getId);
+
+    private final double cellDegrees;
+    private final Map<Long, double[]> points = new HashMap<>();
+    private final Map<Long, List<Long>> cells = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    public GeoGridIndex(double cellDegrees) {
+        this.cellDegrees = cellDegrees;
+    }
+
+    /**
+     * 新增或移动一个点
+     */
+    public void put(long id, double x, double y) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            points.put(id, new double[]{x, y});
+            cells.computeIfAbsent(cellKey(cell(x), cell(y)), k -> new ArrayList<>()).add(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询 radiusMeters 范围内按距离排序的点
+     *
+     * @param after 上一页的最后一条，为空时从头开始
+     * @param limit 本页条数
+     */
+    public List<Hit> search(double x, double y, double radiusMeters, Hit after, int limit) {
+        lock.readLock().lock();
+        try {
+            return searchInternal(x, y, radiusMeters, after, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> searchInternal(double x, double y, double radiusMeters, Hit after, int limit) {
+        long cx = cell(x);
+        long cy = cell(y);
+        // 1.格子的最小边长决定扫描 k 圈后能保证覆盖的距离，对角线长度决定一圈内的最大距离
+        double maxLatitude = Math.min(89, Math.abs(y) + radiusMeters / METERS_PER_DEGREE + cellDegrees);
+        double minWidth = cellDegrees * METERS_PER_DEGREE * Math.cos(Math.toRadians(maxLatitude));
+        double diagonal = cellDegrees * METERS_PER_DEGREE * Math.sqrt(2);
+        int maxRing = (int) Math.ceil(radiusMeters / minWidth) + 1;
+        // 2.跳过完全位于上一页范围内的圈
+        int ring = 0;
+        if (after != null) {
+            while ((ring + 1) * diagonal < after.distance && ring < maxRing) {
+                ring++;
+            }
+        }
+        List<Hit> candidates = new ArrayList<>();
+        for (; ring <= maxRing; ring++) {
+            for (long i = -ring; i <= ring; i++) {
+                for (long j = -ring; j <= ring; j++) {
+                    // 只遍历第 ring 圈上的格子
+                    if (Math.abs(i) != ring && Math.abs(j) != ring) {
+                        continue;
+                    }
+                    List<Long> ids = cells.get(cellKey(cx + i, cy + j));
+                    if (ids == null) {
+                        continue;
+                    }
+                    for (Long id : ids) {
+                        double[] point = points.get(id);
+                        Hit hit = new Hit(id, distance(x, y, point[0], point[1]));
+                        if (hit.distance <= radiusMeters && (after == null || ORDER.compare(hit, after) > 0)) {
+                            candidates.add(hit);
+                        }
+                    }
+                }
+            }
+            // 3.已扫描的圈能保证覆盖 ring * minWidth 以内的所有点，其中的候选足够一页即可停止
+            double covered = ring * minWidth;
+            if (candidates.stream().filter(h -> h.distance < covered).count() >= limit) {
+                break;
+            }
+        }
+        candidates.sort(ORDER);
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    private void removeInternal(long id) {
+        double[] old = points.remove(id);
+        if (old == null) {
+            return;
+        }
+        long key = cellKey(cell(old[0]), cell(old[1]));
+        List<Long> ids = cells.get(key);
+        if (ids != null) {
+            ids.remove(id);
+            if (ids.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private long cell(double degrees) {
+        return (long) Math.floor(degrees / cellDegrees);
+    }
+
+    private static long cellKey(long cx, long cy) {
+        return (cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+
+    /**
+     * 球面距离，单位米
+     */
+    public static double distance(double x1, double y1, double x2, double y2) {
+        double lat1 = Math.toRadians(y1);
+        double lat2 = Math.toRadians(y2);
+        double u = Math.sin((lat2 - lat1) / 2);
+        double v = Math.sin(Math.toRadians(x2 - x1) / 2);
+        return 2 * EARTH_RADIUS_METERS * Math.asin(Math.sqrt(u * u + Math.cos(lat1) * Math.cos(lat2) * v * v));
+    }
+
+    public static class Hit {
+        private final long id;
+        private final double distance;
+
+        public Hit(long id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.hmdp.utils;
+
+/**
+ * GeoHash 编码，用于把坐标归并到固定大小的格子中
+ */
+public class GeoHashUtils {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHashUtils() {
+    }
+
+    /**
+     * @param x         经度
+     * @param y         纬度
+     * @param precision 字符个数，6 位约为 1.2km x 0.6km
+     */
+    public static String encode(double x, double y, int precision) {
+        double[] lon = {-180, 180};
+        double[] lat = {-90, 90};
+        StringBuilder hash = new StringBuilder(precision);
+        boolean even = true;
+        int bit = 0;
+        int ch = 0;
+        while (hash.length() < precision) {
+            double[] range = even ? lon : lat;
+            double value = even ? x : y;
+            double mid = (range[0] + range[1]) / 2;
+            if (value >= mid) {
+                ch |= 1 << (4 - bit);
+                range[0] = mid;
+            } else {
+                range[1] = mid;
+            }
+            even = !even;
+            if (++bit == 5) {
+                hash.append(BASE32[ch]);
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return hash.toString();
+    }
+
+    /**
+     * @return 格子的边界 {最小经度, 最小纬度, 最大经度, 最大纬度}
+     */
+    public static double[] bounds(String hash) {
+        double[] lon = {-180, 180};
+        double[] lat = {-90, 90};
+        boolean even = true;
+        for (char c : hash.toCharArray()) {
+            int cd = indexOf(c);
+            for (int bit = 4; bit >= 0; bit--) {
+                double[] range = even ? lon : lat;
+                double mid = (range[0] + range[1]) / 2;
+                if ((cd >> bit & 1) == 1) {
+                    range[0] = mid;
+                } else {
+                    range[1] = mid;
+                }
+                even = !even;
+            }
+        }
+        return new double[]{lon[0], lat[0], lon[1], lat[1]};
+    }
+
+    private static int indexOf(char c) {
+        for (int i = 0; i < BASE32.length; i++) {
+            if (BASE32[i] == c) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("无效的GeoHash字符：" + c);
+    }
+}
@@ -0,0 +1,360 @@
+package com.hmdp.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.hmdp.config.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.CACHE_HOT_KEY_CHANNEL;
+
+/**
+ * 热点 key 探测：对 RedisTemplate 的读操作按比例采样，在滑动窗口内统计访问次数，
+ * 超过阈值的 key 被标记为热点并广播给所有节点，各节点把热点 key 的读取结果在本地保留很短的时间，
+ * 分摊单个 Redis 线程的压力。对热点 key 的写操作会失效所有节点上的本地副本。
+ */
+@Slf4j
+@Component
+public class HotKeyDetector implements MessageListener {
+
+    private static final Object NULL_RESULT = new Object();
+    /**
+     * 只读且结果只由 key 和参数决定的方法，其余方法都视为写操作
+     */
+    private static final Set<String> READ_METHODS = new HashSet<>(Arrays.asList(
+            "get", "size", "score", "rank", "reverseRank", "range", "reverseRange",
+            "rangeByScore", "reverseRangeByScore", "rangeWithScores", "reverseRangeWithScores",
+            "rangeByScoreWithScores", "reverseRangeByScoreWithScores", "count", "zCard",
+            "isMember", "members", "hasKey", "entries", "keys", "values", "lengthOfValue"));
+    /**
+     * 不涉及 key 内容的方法，直接放行
+     */
+    private static final Set<String> IGNORED_METHODS = new HashSet<>(Arrays.asList(
+            "getOperations", "equals", "hashCode", "toString"));
+
+    @Resource
+    private RedisConnectionFactory redisConnectionFactory;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private CacheProperties cacheProperties;
+
+    private CacheProperties.HotKey config;
+    /**
+     * 滑动窗口，每个桶统计一个时间片内各 key 的采样次数
+     */
+    private List<Map<String, LongAdder>> buckets;
+    private volatile int current;
+    /**
+     * 热点 key 及其保持到的时间（毫秒时间戳）
+     */
+    private final Map<String, HotKey> hotKeys = new ConcurrentHashMap<>();
+    private Cache<PinKey, Object> pinned;
+
+    @PostConstruct
+    public void init() {
+        config = cacheProperties.getHotKey();
+        buckets = new ArrayList<>(config.getBuckets());
+        for (int i = 0; i < config.getBuckets(); i++) {
+            buckets.add(new ConcurrentHashMap<>());
+        }
+        pinned = Caffeine.newBuilder()
+                .maximumSize(config.getMaxPinned())
+                .expireAfterWrite(config.getPinMillis(), TimeUnit.MILLISECONDS)
+                .build();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CACHE_HOT_KEY_CHANNEL));
+    }
+
+    /**
+     * 为 opsForValue、opsForZSet 等操作接口生成代理，第一个参数为 key 的方法会被采样
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T wrap(Class<T> type, T target) {
+        InvocationHandler handler = (proxy, method, args) -> invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+    }
+
+    public boolean isHot(String key) {
+        HotKey hotKey = hotKeys.get(key);
+        return hotKey != null && hotKey.expireAt > System.currentTimeMillis();
+    }
+
+    /**
+     * key 在当前窗口内的采样次数，用于衡量热度
+     */
+    public long score(String key) {
+        long score = 0;
+        for (Map<String, LongAdder> bucket : buckets) {
+            LongAdder adder = bucket.get(key);
+            if (adder != null) {
+                score += adder.sum();
+            }
+        }
+        return score;
+    }
+
+    /**
+     * 失效本节点的副本，并通知其他节点失效
+     */
+    public void invalidate(String key) {
+        if (!isHot(key)) {
+            return;
+        }
+        invalidateLocal(key);
+        publish("evict:" + key);
+    }
+
+    public void invalidate(Collection<String> keys) {
+        keys.forEach(this::invalidate);
+    }
+
+    /**
+     * 当前的热点 key，按窗口内的估算访问次数倒序
+     */
+    public List<Map<String, Object>> hotKeys() {
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> result = new ArrayList<>();
+        hotKeys.forEach((key, hotKey) -> {
+            if (hotKey.expireAt <= now) {
+                return;
+            }
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("key", key);
+            map.put("estimatedReads", hotKey.estimatedReads);
+            map.put("source", hotKey.local ? "local" : "remote");
+            map.put("ttlMillis", hotKey.expireAt - now);
+            result.add(map);
+        });
+        result.sort((a, b) -> Long.compare((Long) b.get("estimatedReads"), (Long) a.get("estimatedReads")));
+        return result;
+    }
+
+    /**
+     * 每个时间片结束时汇总窗口内的计数，找出热点 key 后滑动窗口
+     */
+    @Scheduled(fixedRateString = "${hmdp.cache.hot-key.bucket-millis:1000}")
+    public void detect() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        // 1.汇总窗口内各 key 的采样次数，换算为估算的访问次数
+        Map<String, Long> totals = new HashMap<>();
+        for (Map<String, LongAdder> bucket : buckets) {
+            bucket.forEach((key, adder) -> totals.merge(key, adder.sum(), Long::sum));
+        }
+        List<String> newHotKeys = new ArrayList<>();
+        totals.forEach((key, sampled) -> {
+            long estimated = (long) (sampled / config.getSampleRate());
+            if (estimated < config.getThreshold()) {
+                return;
+            }
+            HotKey old = hotKeys.put(key, new HotKey(estimated, now + config.getHoldMillis(), true));
+            if (old == null || old.expireAt <= now) {
+                newHotKeys.add(key);
+            }
+        });
+        // 2.清理过期的热点 key
+        hotKeys.entrySet().removeIf(e -> e.getValue().expireAt <= now);
+        // 3.窗口前移，清空最旧的桶
+        int next = (current + 1) % buckets.size();
+        buckets.get(next).clear();
+        current = next;
+        // 4.通知其他节点
+        for (String key : newHotKeys) {
+            log.info("发现热点key：{}，窗口内估算访问次数：{}", key, hotKeys.get(key).estimatedReads);
+            publish("hot:" + key);
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        // 消息格式：hot:{key} 或 evict:{key}
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(':');
+        if (index < 0) {
+            return;
+        }
+        String type = body.substring(0, index);
+        String key = body.substring(index + 1);
+        if ("hot".equals(type)) {
+            // 其他节点发现的热点，本节点同样在本地保留副本；自己发出的消息保留本地统计的数据
+            long expireAt = System.currentTimeMillis() + config.getHoldMillis();
+            hotKeys.merge(key, new HotKey(0, expireAt, false), (old, ignored) -> {
+                old.expireAt = Math.max(old.expireAt, expireAt);
+                return old;
+            });
+        } else if ("evict".equals(type)) {
+            invalidateLocal(key);
+        }
+    }
+
+    private Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        if (!config.isEnabled() || IGNORED_METHODS.contains(method.getName())
+                || args == null || args.length == 0 || !(args[0] instanceof String)
+                || !isTracked((String) args[0])) {
+            return call(target, method, args);
+        }
+        String key = (String) args[0];
+        if (!READ_METHODS.contains(method.getName())) {
+            // 写操作先执行再失效副本，避免其他线程在写入前把旧值重新放回本地
+            Object result = call(target, method, args);
+            invalidate(key);
+            return result;
+        }
+        sample(key);
+        if (!isHot(key)) {
+            return call(target, method, args);
+        }
+        // 热点 key 的读取结果在本地保留 pinMillis 毫秒
+        PinKey pinKey = new PinKey(key, method, args);
+        Object result = pinned.getIfPresent(pinKey);
+        if (result == null) {
+            result = call(target, method, args);
+            pinned.put(pinKey, result == null ? NULL_RESULT : result);
+        }
+        return result == NULL_RESULT ? null : result;
+    }
+
+    private void sample(String key) {
+        if (ThreadLocalRandom.current().nextDouble() >= config.getSampleRate()) {
+            return;
+        }
+        Map<String, LongAdder> bucket = buckets.get(current);
+        LongAdder adder = bucket.get(key);
+        if (adder == null) {
+            // 限制每个桶记录的 key 数量，防止大量冷 key 占用内存
+            if (bucket.size() >= config.getMaxKeysPerBucket()) {
+                return;
+            }
+            adder = bucket.computeIfAbsent(key, k -> new LongAdder());
+        }
+        adder.increment();
+    }
+
+    private boolean isTracked(String key) {
+        for (String prefix : config.getIncludePrefixes()) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void invalidateLocal(String key) {
+        pinned.asMap().keySet().removeIf(pinKey -> pinKey.key.equals(key));
+    }
+
+    private void publish(String message) {
+        try (RedisConnection connection = redisConnectionFactory.getConnection()) {
+            connection.publish(CACHE_HOT_KEY_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                    message.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("热点key消息发送失败：{}", message, e);
+        }
+    }
+
+    private static Object call(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    private static class HotKey {
+        private final long estimatedReads;
+        private final boolean local;
+        private volatile long expireAt;
+
+        private HotKey(long estimatedReads, long expireAt, boolean local) {
+            this.estimatedReads = estimatedReads;
+            this.expireAt = expireAt;
+            this.local = local;
+        }
+    }
+
+    /**
+     * 本地副本的 key：Redis key、方法与参数共同决定读取结果
+     */
+    private static class PinKey {
+        private final String key;
+        private final Method method;
+        private final List<Object> args;
+
+        private PinKey(String key, Method method, Object[] args) {
+            this.key = key;
+            this.method = method;
+            this.args = args == null ? Collections.emptyList() : Arrays.asList(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof PinKey)) {
+                return false;
+            }
+            PinKey that = (PinKey) o;
+            return key.equals(that.key) && method.equals(that.method) && argsEquals(args, that.args);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = Objects.hash(key, method);
+            for (Object arg : args) {
+                hash = 31 * hash + (arg instanceof byte[] ? Arrays.hashCode((byte[]) arg) : Objects.hashCode(arg));
+            }
+            return hash;
+        }
+
+        private static boolean argsEquals(List<Object> a, List<Object> b) {
+            if (a.size() != b.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.size(); i++) {
+                Object x = a.get(i);
+                Object y = b.get(i);
+                if (x instanceof byte[] && y instanceof byte[]) {
+                    if (!Arrays.equals((byte[]) x, (byte[]) y)) {
+                        return false;
+                    }
+                } else if (!Objects.equals(x, y)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
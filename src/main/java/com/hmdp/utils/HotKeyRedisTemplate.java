@@ -0,0 +1,43 @@
+package com.hmdp.utils;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+
+import java.util.Collection;
+
+/**
+ * 带热点 key 探测的 RedisTemplate，用于缓存二进制值的 byteRedisTemplate，
+ * 作用与 {@link HotKeyStringRedisTemplate} 相同
+ */
+public class HotKeyRedisTemplate<V> extends RedisTemplate<String, V> {
+
+    private final HotKeyDetector hotKeyDetector;
+
+    private ValueOperations<String, V> valueOps;
+
+    public HotKeyRedisTemplate(HotKeyDetector hotKeyDetector) {
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    @Override
+    public ValueOperations<String, V> opsForValue() {
+        if (valueOps == null) {
+            valueOps = hotKeyDetector.wrap(ValueOperations.class, super.opsForValue());
+        }
+        return valueOps;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        Boolean result = super.delete(key);
+        hotKeyDetector.invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        Long result = super.delete(keys);
+        hotKeyDetector.invalidate(keys);
+        return result;
+    }
+}
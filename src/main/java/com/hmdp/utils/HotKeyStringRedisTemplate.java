@@ -0,0 +1,77 @@
+package com.hmdp.utils;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.HashOperations;
+import org.springframework.data.redis.core.SetOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.Collection;
+
+/**
+ * 带热点 key 探测的 StringRedisTemplate，替换 Spring Boot 自动配置的同名 Bean，
+ * 业务代码无需修改即可获得热点 key 的本地副本。
+ * 只有 opsForXxx 与 delete 经过探测，execute、pipeline 等直接访问连接的操作不受影响。
+ */
+public class HotKeyStringRedisTemplate extends StringRedisTemplate {
+
+    private final HotKeyDetector hotKeyDetector;
+
+    private ValueOperations<String, String> valueOps;
+    private ZSetOperations<String, String> zSetOps;
+    private SetOperations<String, String> setOps;
+    private HashOperations<String, ?, ?> hashOps;
+
+    public HotKeyStringRedisTemplate(RedisConnectionFactory connectionFactory, HotKeyDetector hotKeyDetector) {
+        super(connectionFactory);
+        this.hotKeyDetector = hotKeyDetector;
+    }
+
+    @Override
+    public ValueOperations<String, String> opsForValue() {
+        if (valueOps == null) {
+            valueOps = hotKeyDetector.wrap(ValueOperations.class, super.opsForValue());
+        }
+        return valueOps;
+    }
+
+    @Override
+    public ZSetOperations<String, String> opsForZSet() {
+        if (zSetOps == null) {
+            zSetOps = hotKeyDetector.wrap(ZSetOperations.class, super.opsForZSet());
+        }
+        return zSetOps;
+    }
+
+    @Override
+    public SetOperations<String, String> opsForSet() {
+        if (setOps == null) {
+            setOps = hotKeyDetector.wrap(SetOperations.class, super.opsForSet());
+        }
+        return setOps;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <HK, HV> HashOperations<String, HK, HV> opsForHash() {
+        if (hashOps == null) {
+            hashOps = hotKeyDetector.wrap(HashOperations.class, super.opsForHash());
+        }
+        return (HashOperations<String, HK, HV>) hashOps;
+    }
+
+    @Override
+    public Boolean delete(String key) {
+        Boolean result = super.delete(key);
+        hotKeyDetector.invalidate(key);
+        return result;
+    }
+
+    @Override
+    public Long delete(Collection<String> keys) {
+        Long result = super.delete(keys);
+        hotKeyDetector.invalidate(keys);
+        return result;
+    }
+}
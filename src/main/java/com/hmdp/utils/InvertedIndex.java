@@ -0,0 +1,256 @@
+package com.hmdp.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 进程内的倒排索引：中文按单字和相邻两字切分，字母数字按整词切分。
+ * 查询要求文档包含查询的全部词项，按词频乘以字段权重和逆文档频率打分，
+ * 结果按 (得分降序, id 升序) 排列，传入上一页最后一条即可继续向后翻页。
+ */
+public class InvertedIndex {
+
+    private static final Comparator<Hit> ORDER = Comparator.comparingDouble(Hit::getScore).reversed().thenComparingLong(Hit::getId);
+
+    /**
+     * 词项 -> (文档 id -> 加权词频)
+     */
+    private final Map<String, Map<Long, Double>> postings = new HashMap<>();
+    /**
+     * 文档 id -> 文档包含的词项，删除或更新文档时使用
+     */
+    private final Map<Long, Set<String>> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 新增或更新文档
+     *
+     * @param fields  字段内容
+     * @param weights 与 fields 一一对应的字段权重
+     */
+    public void put(long id, String[] fields, double[] weights) {
+        Map<String, Double> frequencies = new HashMap<>();
+        for (int i = 0; i < fields.length; i++) {
+            double weight = weights[i];
+            for (String token : tokenize(fields[i])) {
+                frequencies.merge(token, weight, Double::sum);
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            if (frequencies.isEmpty()) {
+                return;
+            }
+            frequencies.forEach((token, tf) -> postings.computeIfAbsent(token, k -> new HashMap<>()).put(id, tf));
+            documents.put(id, frequencies.keySet());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int terms() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 查询包含全部词项的文档
+     *
+     * @param after 上一页的最后一条，为空时从头开始
+     * @param limit 本页条数
+     */
+    public List<Hit> search(String query, Hit after, int limit) {
+        Set<String> tokens = queryTokens(query);
+        if (tokens.isEmpty()) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            return searchInternal(tokens, after, limit);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Hit> searchInternal(Set<String> tokens, Hit after, int limit) {
+        //1.按倒排表长度升序，从最短的倒排表出发求交集
+        List<Map<Long, Double>> lists = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            Map<Long, Double> list = postings.get(token);
+            if (list == null) {
+                return new ArrayList<>();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Map::size));
+        double total = documents.size();
+        double[] idf = new double[lists.size()];
+        for (int i = 0; i < lists.size(); i++) {
+            idf[i] = Math.log(1 + total / lists.get(i).size());
+        }
+        //2.打分并过滤掉上一页及之前的文档
+        List<Hit> candidates = new ArrayList<>();
+        outer:
+        for (Map.Entry<Long, Double> entry : lists.get(0).entrySet()) {
+            long id = entry.getKey();
+            double score = entry.getValue() * idf[0];
+            for (int i = 1; i < lists.size(); i++) {
+                Double tf = lists.get(i).get(id);
+                if (tf == null) {
+                    continue outer;
+                }
+                score += tf * idf[i];
+            }
+            Hit hit = new Hit(id, score);
+            if (after == null || ORDER.compare(hit, after) > 0) {
+                candidates.add(hit);
+            }
+        }
+        //3.只需要前 limit 条
+        candidates.sort(ORDER);
+        return candidates.size() > limit ? new ArrayList<>(candidates.subList(0, limit)) : candidates;
+    }
+
+    private void removeInternal(long id) {
+        Set<String> tokens = documents.remove(id);
+        if (tokens == null) {
+            return;
+        }
+        for (String token : tokens) {
+            Map<Long, Double> list = postings.get(token);
+            if (list != null) {
+                list.remove(id);
+                if (list.isEmpty()) {
+                    postings.remove(token);
+                }
+            }
+        }
+    }
+
+    /**
+     * 查询只使用两字词项，单个汉字的查询才使用单字，避免常见单字带来的大量候选
+     */
+    static Set<String> queryTokens(String query) {
+        List<String> tokens = tokenize(query);
+        Set<String> result = new LinkedHashSet<>();
+        for (String token : tokens) {
+            if (!isSingleCjk(token)) {
+                result.add(token);
+            }
+        }
+        // 查询中没有两字词项，说明每段中文都只有一个字
+        for (String token : tokens) {
+            if (isSingleCjk(token) && !coveredByBigram(token, result)) {
+                result.add(token);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 切分文本：连续的中文输出每个单字及相邻两字，连续的字母数字转为小写后整体输出
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        StringBuilder word = new StringBuilder();
+        char previous = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (isCjk(c)) {
+                flushWord(word, tokens);
+                tokens.add(String.valueOf(c));
+                if (previous != 0) {
+                    tokens.add(new String(new char[]{previous, c}));
+                }
+                previous = c;
+            } else if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+                previous = 0;
+            } else {
+                flushWord(word, tokens);
+                previous = 0;
+            }
+        }
+        flushWord(word, tokens);
+        return tokens;
+    }
+
+    private static void flushWord(StringBuilder word, List<String> tokens) {
+        if (word.length() > 0) {
+            tokens.add(word.toString());
+            word.setLength(0);
+        }
+    }
+
+    private static boolean coveredByBigram(String token, Set<String> tokens) {
+        for (String t : tokens) {
+            if (t.length() == 2 && isCjk(t.charAt(0)) && t.indexOf(token) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isSingleCjk(String token) {
+        return token.length() == 1 && isCjk(token.charAt(0));
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(c);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+
+    public static class Hit {
+        private final long id;
+        private final double score;
+
+        public Hit(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getScore() {
+            return score;
+        }
+    }
+}
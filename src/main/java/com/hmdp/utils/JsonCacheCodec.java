@@ -0,0 +1,42 @@
+package com.hmdp.utils;
+
+import cn.hutool.json.JSON;
+import cn.hutool.json.JSONUtil;
+
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 基于 hutool 的 JSON 编码，与迁移前 StringRedisTemplate 写入的格式完全一致
+ */
+public class JsonCacheCodec implements CacheCodec {
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSONUtil.toJsonStr(value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Type type) {
+        return JSONUtil.toBean(new String(bytes, StandardCharsets.UTF_8), type, false);
+    }
+
+    @Override
+    public byte[] encodeLogical(RedisData redisData) {
+        return encode(redisData);
+    }
+
+    @Override
+    public RedisData decodeLogical(byte[] bytes, Type type) {
+        RedisData redisData = JSONUtil.toBean(new String(bytes, StandardCharsets.UTF_8), RedisData.class);
+        if (redisData.getExpireTime() == null) {
+            // 切换为逻辑过期前写入的普通实体 JSON，没有过期时间，按未命中处理
+            return null;
+        }
+        Object data = redisData.getData();
+        if (data instanceof JSON) {
+            redisData.setData(((JSON) data).toBean(type));
+        }
+        return redisData;
+    }
+}
@@ -0,0 +1,127 @@
+package com.hmdp.utils;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.hmdp.config.CacheProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static com.hmdp.utils.RedisConstants.CACHE_INVALIDATE_CHANNEL;
+
+/**
+ * 进程内一级缓存，key 与 Redis 中的缓存 key 保持一致，value 为已反序列化的对象。
+ * 删除 Redis 缓存时通过发布订阅通知所有节点失效本地副本。
+ * 条目过期后仍会保留一段时间，供缓存重建超时时降级使用。
+ */
+@Slf4j
+@Component
+public class LocalCache implements MessageListener {
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private CacheProperties cacheProperties;
+
+    private Cache<String, Entry> cache;
+    private long expireNanos;
+
+    @PostConstruct
+    public void init() {
+        CacheProperties.Local local = cacheProperties.getLocal();
+        expireNanos = TimeUnit.SECONDS.toNanos(local.getExpireSeconds());
+        // Caffeine 默认使用 W-TinyLFU 淘汰策略，物理过期时间包含降级保留期
+        cache = Caffeine.newBuilder()
+                .maximumSize(local.getMaximumSize())
+                .expireAfterWrite(local.getExpireSeconds() + local.getStaleSeconds(), TimeUnit.SECONDS)
+                .recordStats()
+                .build();
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CACHE_INVALIDATE_CHANNEL));
+    }
+
+    public <T> T get(String key, Class<T> type) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null || entry.isExpired()) {
+            return null;
+        }
+        return type.isInstance(entry.value) ? type.cast(entry.value) : null;
+    }
+
+    /**
+     * 读取副本，不论是否已过期
+     */
+    public <T> T getStale(String key, Class<T> type) {
+        Entry entry = cache.getIfPresent(key);
+        if (entry == null) {
+            return null;
+        }
+        return type.isInstance(entry.value) ? type.cast(entry.value) : null;
+    }
+
+    public void put(String key, Object value) {
+        if (value == null) {
+            return;
+        }
+        cache.put(key, new Entry(value, System.nanoTime() + expireNanos));
+    }
+
+    /**
+     * 仅失效本节点的副本
+     */
+    public void invalidate(String key) {
+        cache.invalidate(key);
+    }
+
+    /**
+     * 失效本节点副本，并广播给其他节点
+     */
+    public void evict(String key) {
+        cache.invalidate(key);
+        stringRedisTemplate.convertAndSend(CACHE_INVALIDATE_CHANNEL, key);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        log.debug("收到缓存失效通知：{}", key);
+        cache.invalidate(key);
+    }
+
+    public Map<String, Object> stats() {
+        CacheStats stats = cache.stats();
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("size", cache.estimatedSize());
+        map.put("hitCount", stats.hitCount());
+        map.put("missCount", stats.missCount());
+        map.put("evictionCount", stats.evictionCount());
+        return map;
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final long expireAt;
+
+        private Entry(Object value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired() {
+            return System.nanoTime() - expireAt > 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.hmdp.utils;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.hmdp.utils.RedisConstants.BLOOM_CHANNEL;
+import static com.hmdp.utils.RedisConstants.BLOOM_KEY;
+
+/**
+ * 以 Redis bitmap 为准、本地保存镜像的布隆过滤器。
+ * 查询只读本地镜像；新增同时写入本地和 Redis，并广播给其他节点；
+ * 重建时写入影子 key 后原子 rename，再通知其他节点重新加载。
+ */
+@Slf4j
+public class RedisBloomFilter {
+
+    private final String name;
+    private final String key;
+    private final long expectedInsertions;
+    private final double fpp;
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private volatile BloomFilter local;
+    /**
+     * 镜像尚未加载完成时放行所有查询，避免误判为不存在
+     */
+    private volatile boolean ready;
+
+    public RedisBloomFilter(String name, long expectedInsertions, double fpp, StringRedisTemplate stringRedisTemplate) {
+        this.name = name;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.local = new BloomFilter(expectedInsertions, fpp);
+        // key 中带上位数与哈希函数个数，参数调整后自动使用新的 bitmap
+        this.key = BLOOM_KEY + name + ":" + local.getNumBits() + ":" + local.getNumHashFunctions();
+    }
+
+    public boolean mightContain(Object value) {
+        return !ready || local.mightContain(value);
+    }
+
+    public void add(Object value) {
+        long[] indexes = local.put(value);
+        byte[] rawKey = rawKey(key);
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (long index : indexes) {
+                connection.setBit(rawKey, index, true);
+            }
+            return null;
+        });
+        stringRedisTemplate.convertAndSend(BLOOM_CHANNEL, "add:" + name + ":" + value);
+    }
+
+    /**
+     * 其他节点新增的元素，只写本地镜像
+     */
+    public void addLocal(Object value) {
+        local.put(value);
+    }
+
+    public boolean existsInRedis() {
+        return Boolean.TRUE.equals(stringRedisTemplate.hasKey(key));
+    }
+
+    /**
+     * 从 Redis 加载完整的 bitmap 覆盖本地镜像
+     */
+    public void load() {
+        byte[] bytes = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey(key)));
+        BloomFilter filter = new BloomFilter(expectedInsertions, fpp);
+        filter.loadRedisBytes(bytes);
+        local = filter;
+        ready = true;
+        log.info("布隆过滤器[{}]加载完成，位数：{}，哈希函数个数：{}", name, filter.getNumBits(), filter.getNumHashFunctions());
+    }
+
+    /**
+     * 全量重建，用于首次初始化以及清理已删除的数据
+     *
+     * @param nextIds 按主键升序分批读取，参数为上一批的最大主键
+     * @return 写入的元素个数
+     */
+    public long rebuild(Function<Long, List<Long>> nextIds) {
+        long begin = System.currentTimeMillis();
+        BloomFilter filter = new BloomFilter(expectedInsertions, fpp);
+        long count = 0;
+        long lastId = 0;
+        List<Long> ids;
+        while (!(ids = nextIds.apply(lastId)).isEmpty()) {
+            for (Long id : ids) {
+                filter.put(id);
+                lastId = Math.max(lastId, id);
+            }
+            count += ids.size();
+        }
+        // 1.写入影子 key 后原子替换
+        byte[] rawKey = rawKey(key);
+        byte[] shadowKey = rawKey(key + ":shadow");
+        byte[] bytes = filter.toRedisBytes();
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.set(shadowKey, bytes);
+            connection.rename(shadowKey, rawKey);
+            return null;
+        });
+        local = filter;
+        ready = true;
+        // 2.补上扫描期间新增的数据，主键自增，只需要从扫描到的最大主键继续
+        while (!(ids = nextIds.apply(lastId)).isEmpty()) {
+            for (Long id : ids) {
+                add(id);
+                lastId = Math.max(lastId, id);
+            }
+            count += ids.size();
+        }
+        // 3.通知其他节点重新加载
+        stringRedisTemplate.convertAndSend(BLOOM_CHANNEL, "reload:" + name);
+        log.info("布隆过滤器[{}]重建完成，元素个数：{}，耗时：{}ms", name, count, System.currentTimeMillis() - begin);
+        return count;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static byte[] rawKey(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+}
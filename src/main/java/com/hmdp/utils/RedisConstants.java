@@ -10,13 +10,50 @@ public class RedisConstants {
 
     public static final Long CACHE_SHOP_TTL = 30L;
     public static final String CACHE_SHOP_KEY = "cache:shop:";
+    public static final String CACHE_INVALIDATE_CHANNEL = "cache:invalidate";
+    public static final String CACHE_HOT_KEY_CHANNEL = "cache:hot-key";
+
+    public static final Long CACHE_SHOP_GEO_CELL_TTL = 60L;
+    public static final String CACHE_SHOP_GEO_CELL_KEY = "cache:shop-geo:";
+
+    public static final String SHOP_TYPE_VERSION_KEY = "shop-type:version";
+
+    public static final Long CACHE_BLOG_TTL = 30L;
+    public static final String CACHE_BLOG_KEY = "cache:blog:";
+
+    public static final Long CACHE_VOUCHER_TTL = 1L;
+    public static final String CACHE_VOUCHER_KEY = "cache:voucher:";
+
+    public static final Long CACHE_SECKILL_VOUCHER_TTL = 30L;
+    public static final String CACHE_SECKILL_VOUCHER_KEY = "cache:seckill-voucher:";
+
+    public static final Long CACHE_REBUILD_LOCK_TTL = 10L;
+
+    public static final String BLOOM_KEY = "bloom:";
+    public static final String BLOOM_CHANNEL = "bloom:sync";
+    public static final String LOCK_BLOOM_KEY = "lock:bloom";
+
+    public static final String STATS_ACCESS_KEY = "stats:access:";
+    public static final String LOCK_STATS_DECAY_KEY = "lock:stats:decay:";
+    public static final String LOCK_WARM_UP_KEY = "lock:warm-up";
 
     public static final String LOCK_SHOP_KEY = "lock:shop:";
     public static final Long LOCK_SHOP_TTL = 10L;
 
     public static final String SECKILL_STOCK_KEY = "seckill:stock:";
+    public static final String SECKILL_ORDER_KEY = "seckill:order:";
+    public static final String SECKILL_ORDER_STREAM_KEY = "stream:orders";
+    public static final String SECKILL_ORDER_DEAD_STREAM_KEY = "stream:orders:dead";
+    public static final String SECKILL_SOLD_OUT_CHANNEL = "seckill:sold-out";
+    public static final String SECKILL_LIMIT_KEY = "seckill:limit:";
+    public static final String SECKILL_ARCHIVE_KEY = "seckill:archive:";
+    public static final String SECKILL_PRELOAD_CHANNEL = "seckill:preload";
+    public static final String LOCK_SECKILL_PRELOAD_KEY = "lock:seckill-preload";
+    public static final String LOCK_SECKILL_RECONCILE_KEY = "lock:seckill-reconcile";
     public static final String BLOG_LIKED_KEY = "blog:liked:";
     public static final String FEED_KEY = "feed:";
     public static final String SHOP_GEO_KEY = "shop:geo:";
+    public static final String SHOP_CHANGED_CHANNEL = "shop:changed";
+    public static final String LOCK_SHOP_GEO_KEY = "lock:shop-geo";
     public static final String USER_SIGN_KEY = "sign:";
 }
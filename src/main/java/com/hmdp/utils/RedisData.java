@@ -8,4 +8,8 @@ import java.time.LocalDateTime;
 public class RedisData {
     private LocalDateTime expireTime;
     private Object data;
+    /**
+     * 最近一次重建的耗时，单位毫秒，用于概率性提前刷新，旧数据中可能为空
+     */
+    private Long recomputeMillis;
 }
@@ -0,0 +1,200 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.entity.SeckillVoucher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_LIMIT_KEY;
+
+/**
+ * 秒杀下单的准入控制，在执行秒杀脚本之前拦下超出处理能力的请求：
+ * 先经过本节点每张券的令牌桶，桶的容量和速率按剩余库存定期调整，库存越少放行越少；
+ * 再经过 Redis 中所有节点共享的令牌桶，限制整个集群打到秒杀脚本上的请求数。
+ * 被拒绝的请求返回建议的重试等待时间
+ */
+@Slf4j
+@Component
+public class SeckillAdmission {
+
+    private static final DefaultRedisScript<Long> LIMIT_SCRIPT;
+    static {
+        LIMIT_SCRIPT = new DefaultRedisScript<>();
+        LIMIT_SCRIPT.setLocation(new ClassPathResource("seckill_limit.lua"));
+        LIMIT_SCRIPT.setResultType(Long.class);
+    }
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private SeckillProperties seckillProperties;
+
+    private final Map<Long, VoucherGate> gates = new ConcurrentHashMap<>();
+
+    /**
+     * 尝试放行一个请求
+     *
+     * @return 0 表示放行，否则为建议的重试等待毫秒数
+     */
+    public long tryAdmit(SeckillVoucher voucher) {
+        SeckillProperties.Admission admission = seckillProperties.getAdmission();
+        if (!admission.isEnabled()) {
+            return 0;
+        }
+        Long voucherId = voucher.getVoucherId();
+        long now = System.nanoTime();
+        VoucherGate gate = gates.computeIfAbsent(voucherId,
+                id -> new VoucherGate(id, voucher.getBuckets() == null ? 1 : voucher.getBuckets(), now));
+        gate.resizeIfDue(now);
+        //1.本节点令牌桶
+        long waitNanos = gate.bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            gate.rejectedLocal.increment();
+            return Math.max(1, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        }
+        //2.集群令牌桶
+        long waitMillis = tryAcquireCluster(voucherId, admission);
+        if (waitMillis > 0) {
+            gate.rejectedCluster.increment();
+            return waitMillis;
+        }
+        gate.admitted.increment();
+        return 0;
+    }
+
+    private long tryAcquireCluster(Long voucherId, SeckillProperties.Admission admission) {
+        if (admission.getClusterRatePerSecond() <= 0) {
+            return 0;
+        }
+        try {
+            Long wait = stringRedisTemplate.execute(LIMIT_SCRIPT, Collections.singletonList(SECKILL_LIMIT_KEY + voucherId),
+                    String.valueOf(admission.getClusterRatePerSecond()), String.valueOf(admission.getClusterBurst()),
+                    String.valueOf(System.currentTimeMillis()));
+            return wait == null ? 0 : wait;
+        } catch (Exception e) {
+            // 限流不可用时放行，库存和一人一单仍由秒杀脚本保证
+            log.warn("秒杀集群限流失败，voucherId：{}", voucherId, e);
+            return 0;
+        }
+    }
+
+    /**
+     * 秒杀归档后释放本节点的令牌桶和计数
+     */
+    public void forget(Long voucherId) {
+        gates.remove(voucherId);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new TreeMap<>();
+        gates.forEach((voucherId, gate) -> stats.put(voucherId.toString(), gate.snapshot()));
+        return stats;
+    }
+
+    private class VoucherGate {
+        private final Long voucherId;
+        private final TokenBucket bucket;
+        private final AtomicLong lastResizeNanos;
+        /**
+         * 库存分桶数，创建后不变
+         */
+        private final int buckets;
+        private final LongAdder admitted = new LongAdder();
+        private final LongAdder rejectedLocal = new LongAdder();
+        private final LongAdder rejectedCluster = new LongAdder();
+
+        private volatile int remainingStock = -1;
+        private volatile double admittedPerSecond;
+        private volatile double rejectedPerSecond;
+        private long lastAdmitted;
+        private long lastRejected;
+
+        VoucherGate(Long voucherId, int buckets, long now) {
+            this.voucherId = voucherId;
+            this.buckets = buckets;
+            SeckillProperties.Admission admission = seckillProperties.getAdmission();
+            this.bucket = new TokenBucket(admission.getMinPermits(), admission.getMinPermits(), now);
+            this.lastResizeNanos = new AtomicLong(now - TimeUnit.MILLISECONDS.toNanos(admission.getResizeMillis()));
+        }
+
+        /**
+         * 到了调整间隔时，由抢到调整权的线程读取剩余库存，重新设置令牌桶并计算放行和拒绝速率
+         */
+        void resizeIfDue(long now) {
+            SeckillProperties.Admission admission = seckillProperties.getAdmission();
+            long last = lastResizeNanos.get();
+            long elapsed = now - last;
+            if (elapsed < TimeUnit.MILLISECONDS.toNanos(admission.getResizeMillis())
+                    || !lastResizeNanos.compareAndSet(last, now)) {
+                return;
+            }
+            int stock = readRemainingStock();
+            if (stock >= 0) {
+                remainingStock = stock;
+            }
+            // 库存未知时按上限放行，售罄后保留少量放行，让请求能看到补货
+            double permits = remainingStock < 0 ? Double.MAX_VALUE : remainingStock * admission.getStockMultiplier();
+            bucket.resize(clamp(permits, admission.getMinPermits(), admission.getBurst()),
+                    clamp(permits, admission.getMinPermits(), admission.getRatePerSecond()), now);
+
+            long admittedNow = admitted.sum();
+            long rejectedNow = rejectedLocal.sum() + rejectedCluster.sum();
+            double seconds = elapsed / 1e9;
+            admittedPerSecond = (admittedNow - lastAdmitted) / seconds;
+            rejectedPerSecond = (rejectedNow - lastRejected) / seconds;
+            lastAdmitted = admittedNow;
+            lastRejected = rejectedNow;
+        }
+
+        /**
+         * Redis 中各库存桶的合计，库存未加载时返回 -1
+         */
+        private int readRemainingStock() {
+            try {
+                List<String> values = stringRedisTemplate.opsForValue().multiGet(SeckillStockKeys.keys(voucherId, buckets));
+                if (values == null || values.get(0) == null) {
+                    return -1;
+                }
+                int sum = 0;
+                for (String value : values) {
+                    sum += value == null ? 0 : Math.max(Integer.parseInt(value), 0);
+                }
+                return sum;
+            } catch (Exception e) {
+                log.warn("读取秒杀库存失败，voucherId：{}", voucherId, e);
+                return -1;
+            }
+        }
+
+        Map<String, Object> snapshot() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("remainingStock", remainingStock);
+            map.put("capacity", bucket.capacity());
+            map.put("ratePerSecond", bucket.ratePerSecond());
+            map.put("admitted", admitted.sum());
+            map.put("rejectedLocal", rejectedLocal.sum());
+            map.put("rejectedCluster", rejectedCluster.sum());
+            map.put("admittedPerSecond", admittedPerSecond);
+            map.put("rejectedPerSecond", rejectedPerSecond);
+            return map;
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(value, max));
+    }
+}
@@ -0,0 +1,325 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.lang.UUID;
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.service.IVoucherOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamInfo;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_DEAD_STREAM_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_STREAM_KEY;
+
+/**
+ * 秒杀订单消息队列 stream:orders 的消费者：
+ * 每个节点按配置启动多个消费线程，以消费者组读取订单，凑批后在一个事务中写入数据库，提交后 XACK；
+ * 定期认领超时未确认的消息（消费者宕机或写入失败），多次投递仍失败的消息转入死信队列
+ */
+@Slf4j
+@Component
+public class SeckillOrderConsumer {
+
+    private static final int RECLAIM_BATCH_SIZE = 100;
+    private static final int[] BATCH_SIZE_BUCKETS = {1, 5, 10, 50, 100};
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+    @Resource
+    private SeckillProperties seckillProperties;
+
+    /**
+     * 本节点的消费者名称前缀，节点重启后使用新的名称，旧名称下的未确认消息由认领流程处理
+     */
+    private final String consumerPrefix = "consumer-" + UUID.randomUUID().toString(true).substring(0, 8);
+    private ExecutorService executor;
+    private volatile boolean running;
+
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder reclaimed = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder batchFallbacks = new LongAdder();
+    private final LongAdder commitMillis = new LongAdder();
+    private final LongAccumulator maxCommitMillis = new LongAccumulator(Math::max, 0);
+    /**
+     * 批大小分布，第 i 个桶统计大小不超过 BATCH_SIZE_BUCKETS[i] 的批次，最后一个桶统计更大的批次
+     */
+    private final LongAdder[] batchSizes = newCounters(BATCH_SIZE_BUCKETS.length + 1);
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        SeckillProperties.Stream stream = seckillProperties.getStream();
+        createGroup(stream.getGroup());
+        running = true;
+        executor = Executors.newFixedThreadPool(stream.getConsumers(), new NamedThreadFactory("seckill-order-", false));
+        for (int i = 0; i < stream.getConsumers(); i++) {
+            String name = consumerPrefix + "-" + i;
+            executor.submit(() -> consume(name));
+        }
+        log.info("秒杀订单消费者已启动，消费者：{}-*，线程数：{}", consumerPrefix, stream.getConsumers());
+    }
+
+    /**
+     * 停止读取新消息，等待正在处理的消息完成，未确认的消息由其他节点认领
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (executor == null) {
+            return;
+        }
+        executor.shutdown();
+        if (!executor.awaitTermination(seckillProperties.getStream().getBlockMillis() + 10000, TimeUnit.MILLISECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 认领超时未确认的消息并重新处理
+     */
+    @Scheduled(fixedDelayString = "${hmdp.seckill.stream.reclaim-interval-millis:30000}")
+    public void reclaim() {
+        if (!running) {
+            return;
+        }
+        SeckillProperties.Stream stream = seckillProperties.getStream();
+        PendingMessages pending = stringRedisTemplate.opsForStream()
+                .pending(SECKILL_ORDER_STREAM_KEY, stream.getGroup(), Range.unbounded(), RECLAIM_BATCH_SIZE);
+        String reclaimer = consumerPrefix + "-reclaim";
+        Duration minIdle = Duration.ofMillis(stream.getReclaimIdleMillis());
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) < 0) {
+                continue;
+            }
+            //1.认领消息，多个节点同时认领时只有一个成功；JUSTID 不会增加投递次数，用 RETRYCOUNT 显式记录本次投递
+            long deliveries = message.getTotalDeliveryCount() + 1;
+            List<RecordId> claimed = stringRedisTemplate.execute((RedisCallback<List<RecordId>>) connection ->
+                    connection.streamCommands().xClaimJustId(bytes(SECKILL_ORDER_STREAM_KEY), stream.getGroup(), reclaimer,
+                            RedisStreamCommands.XClaimOptions.minIdle(minIdle).ids(message.getId()).retryCount(deliveries)));
+            if (claimed == null || claimed.isEmpty()) {
+                continue;
+            }
+            List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                    .range(SECKILL_ORDER_STREAM_KEY, Range.closed(message.getIdAsString(), message.getIdAsString()));
+            if (records == null || records.isEmpty()) {
+                // 消息已被裁剪，只能确认掉
+                stringRedisTemplate.opsForStream().acknowledge(SECKILL_ORDER_STREAM_KEY, stream.getGroup(), message.getId());
+                continue;
+            }
+            //2.本次认领后的投递次数超过上限，说明已多次处理失败，转入死信队列
+            MapRecord<String, Object, Object> record = records.get(0);
+            if (deliveries > stream.getMaxDeliveries()) {
+                deadLetter(record);
+                continue;
+            }
+            reclaimed.increment();
+            handle(record);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        SeckillProperties.Stream stream = seckillProperties.getStream();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("consumers", running ? stream.getConsumers() : 0);
+        stats.put("consumed", consumed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("reclaimed", reclaimed.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        long batchCount = batches.sum();
+        stats.put("batches", batchCount);
+        stats.put("batchFallbacks", batchFallbacks.sum());
+        stats.put("avgCommitMillis", batchCount == 0 ? 0D : (double) commitMillis.sum() / batchCount);
+        stats.put("maxCommitMillis", maxCommitMillis.get());
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        for (int i = 0; i < batchSizes.length; i++) {
+            String bucket = i < BATCH_SIZE_BUCKETS.length ? "<=" + BATCH_SIZE_BUCKETS[i] : ">" + BATCH_SIZE_BUCKETS[i - 1];
+            sizes.put(bucket, batchSizes[i].sum());
+        }
+        stats.put("batchSizes", sizes);
+        if (!Boolean.TRUE.equals(stringRedisTemplate.hasKey(SECKILL_ORDER_STREAM_KEY))) {
+            return stats;
+        }
+        StreamInfo.XInfoStream info = stringRedisTemplate.opsForStream().info(SECKILL_ORDER_STREAM_KEY);
+        stats.put("length", info.streamLength());
+        StreamInfo.XInfoGroups groups = stringRedisTemplate.opsForStream().groups(SECKILL_ORDER_STREAM_KEY);
+        for (int i = 0; i < groups.size(); i++) {
+            StreamInfo.XInfoGroup group = groups.get(i);
+            if (!stream.getGroup().equals(group.groupName())) {
+                continue;
+            }
+            stats.put("pending", group.pendingCount());
+            stats.put("lastDeliveredId", group.lastDeliveredId());
+            // 最新消息与已投递消息的时间差，近似表示消费延迟
+            stats.put("lagMillis", Math.max(0, RecordId.of(info.lastGeneratedId()).getTimestamp()
+                    - RecordId.of(group.lastDeliveredId()).getTimestamp()));
+        }
+        return stats;
+    }
+
+    /**
+     * 凑批消费：攒够 batchSize 条或距第一条超过 maxWaitMillis 时提交一批
+     */
+    private void consume(String name) {
+        SeckillProperties.Stream stream = seckillProperties.getStream();
+        Consumer consumer = Consumer.from(stream.getGroup(), name);
+        List<MapRecord<String, Object, Object>> batch = new ArrayList<>();
+        long deadline = 0;
+        while (running) {
+            try {
+                //1.读取新消息 XREADGROUP GROUP g c COUNT n BLOCK ms STREAMS stream:orders >，
+                //  已有未提交的订单时只等待到本批的截止时间
+                long block = batch.isEmpty() ? stream.getBlockMillis() : Math.max(1, deadline - System.currentTimeMillis());
+                StreamReadOptions options = StreamReadOptions.empty()
+                        .count(stream.getBatchSize() - batch.size())
+                        .block(Duration.ofMillis(block));
+                List<MapRecord<String, Object, Object>> records = stringRedisTemplate.opsForStream()
+                        .read(consumer, options, StreamOffset.create(SECKILL_ORDER_STREAM_KEY, ReadOffset.lastConsumed()));
+                if (records != null && !records.isEmpty()) {
+                    if (batch.isEmpty()) {
+                        deadline = System.currentTimeMillis() + stream.getMaxWaitMillis();
+                    }
+                    batch.addAll(records);
+                }
+                //2.凑满或到时，整批写入数据库并确认
+                if (!batch.isEmpty() && (batch.size() >= stream.getBatchSize() || System.currentTimeMillis() >= deadline)) {
+                    handleBatch(batch);
+                    batch = new ArrayList<>();
+                }
+            } catch (Exception e) {
+                log.error("读取秒杀订单失败", e);
+                sleepQuietly();
+            }
+        }
+        if (!batch.isEmpty()) {
+            handleBatch(batch);
+        }
+    }
+
+    /**
+     * 一个事务写入整批订单后一次确认；整批失败时逐条写入，单条失败的消息留在待确认列表中
+     */
+    private void handleBatch(List<MapRecord<String, Object, Object>> records) {
+        List<VoucherOrder> orders = records.stream()
+                .map(record -> BeanUtil.fillBeanWithMap(record.getValue(), new VoucherOrder(), true))
+                .collect(Collectors.toList());
+        long begin = System.currentTimeMillis();
+        try {
+            voucherOrderService.creatVoucherOrders(orders);
+        } catch (Exception e) {
+            batchFallbacks.increment();
+            log.warn("秒杀订单批量写入失败，逐条写入，条数：{}，原因：{}", records.size(), e.getMessage());
+            records.forEach(this::handle);
+            return;
+        }
+        long cost = System.currentTimeMillis() - begin;
+        RecordId[] ids = records.stream().map(MapRecord::getId).toArray(RecordId[]::new);
+        stringRedisTemplate.opsForStream().acknowledge(SECKILL_ORDER_STREAM_KEY, seckillProperties.getStream().getGroup(), ids);
+        consumed.add(records.size());
+        batches.increment();
+        commitMillis.add(cost);
+        maxCommitMillis.accumulate(cost);
+        batchSizes[bucketOf(records.size())].increment();
+    }
+
+    /**
+     * 写入数据库，事务提交后确认；失败的消息保留在待确认列表中，超时后重新认领
+     */
+    private void handle(MapRecord<String, Object, Object> record) {
+        VoucherOrder voucherOrder = BeanUtil.fillBeanWithMap(record.getValue(), new VoucherOrder(), true);
+        try {
+            voucherOrderService.creatVoucherOrder(voucherOrder);
+            stringRedisTemplate.opsForStream().acknowledge(SECKILL_ORDER_STREAM_KEY, seckillProperties.getStream().getGroup(), record.getId());
+            consumed.increment();
+        } catch (Exception e) {
+            failed.increment();
+            log.error("秒杀订单写入失败，orderId：{}", voucherOrder.getId(), e);
+        }
+    }
+
+    private void deadLetter(MapRecord<String, Object, Object> record) {
+        stringRedisTemplate.opsForStream().add(StreamRecords.newRecord()
+                .in(SECKILL_ORDER_DEAD_STREAM_KEY).ofMap(record.getValue()));
+        stringRedisTemplate.opsForStream().acknowledge(SECKILL_ORDER_STREAM_KEY, seckillProperties.getStream().getGroup(), record.getId());
+        deadLettered.increment();
+        log.error("秒杀订单多次写入失败，已转入死信队列：{}", record.getValue());
+    }
+
+    /**
+     * 消费者组不存在时从头创建，队列不存在时一并创建
+     */
+    private void createGroup(String group) {
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                    connection.streamCommands().xGroupCreate(bytes(SECKILL_ORDER_STREAM_KEY), group, ReadOffset.from("0"), true));
+        } catch (Exception e) {
+            // BUSYGROUP：消费者组已存在
+            log.debug("消费者组已存在：{}", group);
+        }
+    }
+
+    private static LongAdder[] newCounters(int n) {
+        LongAdder[] counters = new LongAdder[n];
+        for (int i = 0; i < n; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    private static int bucketOf(int size) {
+        for (int i = 0; i < BATCH_SIZE_BUCKETS.length; i++) {
+            if (size <= BATCH_SIZE_BUCKETS[i]) {
+                return i;
+            }
+        }
+        return BATCH_SIZE_BUCKETS.length;
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,187 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherOrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.LOCK_SECKILL_PRELOAD_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_PRELOAD_CHANNEL;
+
+/**
+ * 秒杀数据的预加载与归档：定时扫描 tb_seckill_voucher，
+ * 即将开始和进行中的秒杀券把库存、已下单用户和秒杀券信息加载到Redis并校验，再通知所有节点加载本地缓存；
+ * 结束一段时间后的秒杀券记录归档摘要，删除相关key，并通知所有节点清理本地状态。
+ * 多个节点之间通过分布式锁保证同一时间只有一个节点扫描
+ */
+@Slf4j
+@Component
+public class SeckillPreloader implements MessageListener {
+
+    private static final String PRELOAD = "preload:";
+    private static final String ARCHIVE = "archive:";
+
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private SeckillProperties seckillProperties;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+    @Resource
+    private SeckillAdmission seckillAdmission;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder preloaded = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder archived = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private volatile LocalDateTime lastRunTime;
+    private volatile long lastRunMillis;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SECKILL_PRELOAD_CHANNEL));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadOnStartup() {
+        run();
+    }
+
+    @Scheduled(fixedDelayString = "${hmdp.seckill.preload.interval-millis:60000}",
+            initialDelayString = "${hmdp.seckill.preload.interval-millis:60000}")
+    public void run() {
+        if (!seckillProperties.getPreload().isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        RLock lock = redissonClient.getLock(LOCK_SECKILL_PRELOAD_KEY);
+        try {
+            if (!lock.tryLock()) {
+                log.debug("其他节点正在预加载秒杀数据，跳过本次执行");
+                return;
+            }
+            try {
+                long begin = System.currentTimeMillis();
+                preload();
+                archive();
+                runs.increment();
+                lastRunTime = LocalDateTime.now();
+                lastRunMillis = System.currentTimeMillis() - begin;
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            log.error("秒杀数据预加载失败", e);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * 开始时间在预加载窗口内、尚未结束的秒杀券，已开始的也重新校验，Redis被清空后可以恢复
+     */
+    private void preload() {
+        SeckillProperties.Preload config = seckillProperties.getPreload();
+        LocalDateTime now = LocalDateTime.now();
+        List<SeckillVoucher> vouchers = seckillVoucherService.query()
+                .le("begin_time", now.plusMinutes(config.getWindowMinutes()))
+                .gt("end_time", now)
+                .list();
+        for (SeckillVoucher voucher : vouchers) {
+            try {
+                if (voucherOrderService.preloadSeckill(voucher)) {
+                    preloaded.increment();
+                    log.info("秒杀数据已预加载，voucherId：{}，开始时间：{}", voucher.getVoucherId(), voucher.getBeginTime());
+                } else {
+                    verified.increment();
+                }
+                // 每次都通知，新上线的节点也能加载本地缓存
+                stringRedisTemplate.convertAndSend(SECKILL_PRELOAD_CHANNEL, PRELOAD + voucher.getVoucherId());
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("秒杀数据预加载失败，voucherId：{}", voucher.getVoucherId(), e);
+            }
+        }
+    }
+
+    /**
+     * 结束超过归档延迟的秒杀券，只回看 archiveLookbackHours 内结束的，避免每次扫描全部历史
+     */
+    private void archive() {
+        SeckillProperties.Preload config = seckillProperties.getPreload();
+        LocalDateTime before = LocalDateTime.now().minusMinutes(config.getArchiveDelayMinutes());
+        List<SeckillVoucher> vouchers = seckillVoucherService.query()
+                .le("end_time", before)
+                .gt("end_time", before.minusHours(config.getArchiveLookbackHours()))
+                .list();
+        for (SeckillVoucher voucher : vouchers) {
+            try {
+                if (voucherOrderService.archiveSeckill(voucher)) {
+                    archived.increment();
+                    stringRedisTemplate.convertAndSend(SECKILL_PRELOAD_CHANNEL, ARCHIVE + voucher.getVoucherId());
+                    log.info("秒杀数据已归档，voucherId：{}，结束时间：{}", voucher.getVoucherId(), voucher.getEndTime());
+                }
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("秒杀数据归档失败，voucherId：{}", voucher.getVoucherId(), e);
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(PRELOAD)) {
+            voucherOrderService.warmSeckillVoucher(Long.valueOf(body.substring(PRELOAD.length())));
+        } else if (body.startsWith(ARCHIVE)) {
+            Long voucherId = Long.valueOf(body.substring(ARCHIVE.length()));
+            soldOutRegistry.forget(voucherId);
+            seckillAdmission.forget(voucherId);
+        } else {
+            log.warn("无法识别的秒杀预加载通知：{}", body);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("runs", runs.sum());
+        stats.put("lastRunTime", lastRunTime);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("preloaded", preloaded.sum());
+        stats.put("verified", verified.sum());
+        stats.put("archived", archived.sum());
+        stats.put("failed", failed.sum());
+        return stats;
+    }
+}
@@ -0,0 +1,383 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.mapper.VoucherOrderMapper;
+import com.hmdp.service.ISeckillVoucherService;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.LOCK_SECKILL_RECONCILE_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_KEY;
+
+/**
+ * 秒杀Redis与数据库的对账。对每张进行中（含结束后尚未归档）的秒杀券：
+ * 1. 按 user_id 分块遍历数据库订单，补上Redis已下单用户集合中缺失的用户，避免重复下单；
+ * 2. 用 SSCAN 分块遍历已下单用户集合，查出数据库中没有订单的用户，超过确认时间仍没有的视为订单丢失，
+ *    从集合中移除并把库存还给Redis，用户可以重新下单；
+ * 3. 比较两边的总量：Redis 剩余库存 + 已下单用户数，与数据库剩余库存 + 订单数，
+ *    两边各自原子地维护，在途订单不影响总量，差值持续超过确认时间后调整Redis库存。
+ * dry-run 模式只统计不修复
+ */
+@Slf4j
+@Component
+public class SeckillReconciler {
+
+    private static final DefaultRedisScript<List> SNAPSHOT_SCRIPT;
+    static {
+        SNAPSHOT_SCRIPT = new DefaultRedisScript<>();
+        SNAPSHOT_SCRIPT.setLocation(new ClassPathResource("seckill_reconcile.lua"));
+        SNAPSHOT_SCRIPT.setResultType(List.class);
+    }
+
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private VoucherOrderMapper voucherOrderMapper;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private PlatformTransactionManager transactionManager;
+    @Resource
+    private SeckillProperties seckillProperties;
+    @Resource
+    private SoldOutRegistry soldOutRegistry;
+
+    private TransactionTemplate readOnlyTransaction;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    /**
+     * 优惠券id -> (数据库中没有订单的用户id -> 首次发现的时间)
+     */
+    private final Map<Long, Map<Long, Long>> missingInDbSince = new ConcurrentHashMap<>();
+    /**
+     * 优惠券id -> {总量差值, 首次发现该差值的时间}
+     */
+    private final Map<Long, long[]> driftSince = new ConcurrentHashMap<>();
+    private volatile Map<Long, Map<String, Object>> lastReports = Collections.emptyMap();
+    private volatile LocalDateTime lastRunTime;
+    private volatile long lastRunMillis;
+
+    private final LongAdder runs = new LongAdder();
+    private final LongAdder repairs = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Scheduled(fixedDelayString = "${hmdp.seckill.reconcile.interval-millis:60000}",
+            initialDelayString = "${hmdp.seckill.reconcile.interval-millis:60000}")
+    public void runOnSchedule() {
+        if (seckillProperties.getReconcile().isEnabled()) {
+            reconcile(seckillProperties.getReconcile().isApply());
+        }
+    }
+
+    /**
+     * 对所有进行中的秒杀券对账一次，多个节点之间通过分布式锁互斥
+     *
+     * @param apply 是否修复，为 false 时只统计
+     * @return 每张券的对账结果，其他节点正在对账时返回 null
+     */
+    public Map<Long, Map<String, Object>> reconcile(boolean apply) {
+        if (!running.compareAndSet(false, true)) {
+            return null;
+        }
+        RLock lock = redissonClient.getLock(LOCK_SECKILL_RECONCILE_KEY);
+        try {
+            if (!lock.tryLock()) {
+                log.debug("其他节点正在对账，跳过本次对账");
+                return null;
+            }
+            try {
+                long begin = System.currentTimeMillis();
+                LocalDateTime now = LocalDateTime.now();
+                // 结束后到归档前的秒杀券也要对账，订单队列可能还在消费
+                List<SeckillVoucher> vouchers = seckillVoucherService.query()
+                        .le("begin_time", now)
+                        .gt("end_time", now.minusMinutes(seckillProperties.getPreload().getArchiveDelayMinutes()))
+                        .list();
+                Map<Long, Map<String, Object>> reports = new LinkedHashMap<>();
+                for (SeckillVoucher voucher : vouchers) {
+                    try {
+                        Map<String, Object> report = reconcile(voucher, apply);
+                        if (report != null) {
+                            reports.put(voucher.getVoucherId(), report);
+                        }
+                    } catch (Exception e) {
+                        log.warn("秒杀对账失败，voucherId：{}", voucher.getVoucherId(), e);
+                    }
+                }
+                // 已不再对账的券不保留状态
+                missingInDbSince.keySet().retainAll(reports.keySet());
+                driftSince.keySet().retainAll(reports.keySet());
+                lastReports = reports;
+                runs.increment();
+                lastRunTime = now;
+                lastRunMillis = System.currentTimeMillis() - begin;
+                return reports;
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private Map<String, Object> reconcile(SeckillVoucher voucher, boolean apply) {
+        Long voucherId = voucher.getVoucherId();
+        int buckets = voucher.getBuckets() == null ? 1 : voucher.getBuckets();
+        List<String> stockKeys = SeckillStockKeys.keys(voucherId, buckets);
+        String orderKey = SECKILL_ORDER_KEY + voucherId;
+        long confirmMillis = seckillProperties.getReconcile().getConfirmMillis();
+        long now = System.currentTimeMillis();
+        //1.库存未加载时跳过，由预加载处理
+        if (redisSnapshot(orderKey, stockKeys)[2] == 0) {
+            return null;
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("apply", apply);
+        //2.数据库有订单、Redis集合中没有的用户，立即补上
+        int missingInRedis = addMissingBuyers(voucherId, orderKey, apply);
+        report.put("missingInRedis", missingInRedis);
+        //3.Redis集合中有、数据库没有订单的用户，超过确认时间仍没有的视为订单丢失
+        Set<Long> missingInDb = findMissingInDb(voucherId, orderKey);
+        Map<Long, Long> previous = missingInDbSince.getOrDefault(voucherId, Collections.emptyMap());
+        Map<Long, Long> since = new HashMap<>();
+        List<Long> lost = new ArrayList<>();
+        for (Long userId : missingInDb) {
+            long firstSeen = previous.getOrDefault(userId, now);
+            since.put(userId, firstSeen);
+            if (now - firstSeen >= confirmMillis) {
+                lost.add(userId);
+            }
+        }
+        report.put("missingInDb", missingInDb.size());
+        report.put("lostOrders", lost.size());
+        if (apply && !lost.isEmpty()) {
+            // 把库存还到用户所属的桶，并移出已下单用户集合
+            for (Long userId : lost) {
+                stringRedisTemplate.opsForSet().remove(orderKey, userId.toString());
+                stringRedisTemplate.opsForValue().increment(SeckillStockKeys.probeOrder(voucherId, buckets, userId).get(0));
+                since.remove(userId);
+            }
+            soldOutRegistry.reset(voucherId);
+            repairs.add(lost.size());
+            log.warn("秒杀订单丢失，已退回库存，voucherId：{}，用户：{}", voucherId, lost);
+        }
+        missingInDbSince.put(voucherId, since);
+        //4.比较两边的总量
+        long[] redis = redisSnapshot(orderKey, stockKeys);
+        long[] db = dbSnapshot(voucherId);
+        long drift = (redis[0] + redis[1]) - (db[0] + db[1]);
+        report.put("redisStock", redis[0]);
+        report.put("redisBuyers", redis[1]);
+        report.put("dbStock", db[0]);
+        report.put("dbOrders", db[1]);
+        report.put("drift", drift);
+        if (drift == 0) {
+            driftSince.remove(voucherId);
+        } else {
+            // 补货时数据库和Redis先后增加，差值需要持续超过确认时间才处理
+            long[] seen = driftSince.get(voucherId);
+            if (seen == null || seen[0] != drift) {
+                seen = new long[]{drift, now};
+                driftSince.put(voucherId, seen);
+            }
+            boolean confirmed = now - seen[1] >= confirmMillis;
+            report.put("driftConfirmed", confirmed);
+            if (confirmed && apply) {
+                adjustStock(voucherId, stockKeys, -drift);
+                driftSince.remove(voucherId);
+                repairs.increment();
+                log.warn("秒杀库存与数据库不一致，已调整Redis库存，voucherId：{}，调整：{}", voucherId, -drift);
+            }
+        }
+        return report;
+    }
+
+    /**
+     * 按 user_id 分块读取数据库订单（走 (voucher_id, user_id) 索引），用 pipeline 检查是否在已下单用户集合中
+     */
+    private int addMissingBuyers(Long voucherId, String orderKey, boolean apply) {
+        int chunkSize = seckillProperties.getReconcile().getChunkSize();
+        byte[] rawKey = orderKey.getBytes(StandardCharsets.UTF_8);
+        int missing = 0;
+        long lastUserId = 0;
+        List<Long> userIds;
+        while (!(userIds = voucherOrderMapper.selectObjs(new QueryWrapper<VoucherOrder>()
+                .select("user_id").eq("voucher_id", voucherId).gt("user_id", lastUserId)
+                .orderByAsc("user_id").last("limit " + chunkSize))
+                .stream().map(o -> ((Number) o).longValue()).collect(Collectors.toList())).isEmpty()) {
+            List<Long> chunk = userIds;
+            List<Object> members = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (Long userId : chunk) {
+                    connection.sIsMember(rawKey, userId.toString().getBytes(StandardCharsets.UTF_8));
+                }
+                return null;
+            });
+            List<String> absent = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!Boolean.TRUE.equals(members.get(i))) {
+                    absent.add(chunk.get(i).toString());
+                }
+            }
+            if (!absent.isEmpty()) {
+                missing += absent.size();
+                if (apply) {
+                    stringRedisTemplate.opsForSet().add(orderKey, absent.toArray(new String[0]));
+                    repairs.add(absent.size());
+                }
+            }
+            lastUserId = chunk.get(chunk.size() - 1);
+        }
+        return missing;
+    }
+
+    /**
+     * 用 SSCAN 分块遍历已下单用户集合，每块用一次 IN 查询找出数据库中没有订单的用户
+     */
+    private Set<Long> findMissingInDb(Long voucherId, String orderKey) {
+        int chunkSize = seckillProperties.getReconcile().getChunkSize();
+        Set<Long> missing = new HashSet<>();
+        List<Long> chunk = new ArrayList<>(chunkSize);
+        try (Cursor<String> cursor = stringRedisTemplate.opsForSet()
+                .scan(orderKey, ScanOptions.scanOptions().count(chunkSize).build())) {
+            while (cursor.hasNext()) {
+                chunk.add(Long.valueOf(cursor.next()));
+                if (chunk.size() == chunkSize) {
+                    collectMissing(voucherId, chunk, missing);
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("关闭SSCAN游标失败", e);
+        }
+        if (!chunk.isEmpty()) {
+            collectMissing(voucherId, chunk, missing);
+        }
+        return missing;
+    }
+
+    private void collectMissing(Long voucherId, List<Long> userIds, Set<Long> missing) {
+        Set<Long> found = voucherOrderMapper.selectObjs(new QueryWrapper<VoucherOrder>()
+                .select("user_id").eq("voucher_id", voucherId).in("user_id", userIds))
+                .stream().map(o -> ((Number) o).longValue()).collect(Collectors.toSet());
+        for (Long userId : userIds) {
+            if (!found.contains(userId)) {
+                missing.add(userId);
+            }
+        }
+    }
+
+    /**
+     * @return {剩余库存合计, 已下单用户数, 库存是否已加载}
+     */
+    private long[] redisSnapshot(String orderKey, List<String> stockKeys) {
+        List<String> keys = new ArrayList<>(stockKeys.size() + 1);
+        keys.add(orderKey);
+        keys.addAll(stockKeys);
+        List<?> result = stringRedisTemplate.execute(SNAPSHOT_SCRIPT, keys);
+        if (result == null) {
+            return new long[]{0, 0, 0};
+        }
+        return new long[]{((Number) result.get(0)).longValue(), ((Number) result.get(1)).longValue(),
+                ((Number) result.get(2)).longValue()};
+    }
+
+    /**
+     * 在一个只读事务中读取剩余库存和订单数，两者来自同一个快照
+     *
+     * @return {剩余库存, 订单数}
+     */
+    private long[] dbSnapshot(Long voucherId) {
+        return readOnlyTransaction.execute(status -> {
+            SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
+            Integer orders = voucherOrderMapper.selectCount(new QueryWrapper<VoucherOrder>().eq("voucher_id", voucherId));
+            return new long[]{voucher == null ? 0 : voucher.getStock(), orders == null ? 0 : orders};
+        });
+    }
+
+    /**
+     * 调整Redis库存：增加时加到第一个桶，减少时依次从有库存的桶中扣除，都使用增量操作，不覆盖并发的扣减
+     */
+    private void adjustStock(Long voucherId, List<String> stockKeys, long delta) {
+        if (delta > 0) {
+            stringRedisTemplate.opsForValue().increment(stockKeys.get(0), delta);
+            soldOutRegistry.reset(voucherId);
+            return;
+        }
+        long remaining = -delta;
+        List<String> values = stringRedisTemplate.opsForValue().multiGet(stockKeys);
+        for (int i = 0; i < stockKeys.size() && remaining > 0; i++) {
+            long stock = values == null || values.get(i) == null ? 0 : Long.parseLong(values.get(i));
+            long take = Math.min(Math.max(stock, 0), remaining);
+            if (take > 0) {
+                stringRedisTemplate.opsForValue().decrement(stockKeys.get(i), take);
+                remaining -= take;
+            }
+        }
+        if (remaining > 0) {
+            // 各桶的库存不够扣，多卖的部分只能告警，由人工处理
+            log.error("秒杀库存已超卖，voucherId：{}，超出：{}", voucherId, remaining);
+        }
+    }
+
+    /**
+     * 不一致的数量取最近一次对账的结果，repairs 为累计修复次数
+     */
+    public Map<String, Object> stats() {
+        Map<Long, Map<String, Object>> reports = lastReports;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("mode", seckillProperties.getReconcile().isApply() ? "apply" : "dry-run");
+        stats.put("runs", runs.sum());
+        stats.put("lastRunTime", lastRunTime);
+        stats.put("lastRunMillis", lastRunMillis);
+        stats.put("missingInRedis", sum(reports, "missingInRedis"));
+        stats.put("missingInDb", sum(reports, "missingInDb"));
+        stats.put("lostOrders", sum(reports, "lostOrders"));
+        stats.put("driftVouchers", reports.values().stream().filter(r -> ((Number) r.get("drift")).longValue() != 0).count());
+        stats.put("repairs", repairs.sum());
+        stats.put("vouchers", reports);
+        return stats;
+    }
+
+    private static long sum(Map<Long, Map<String, Object>> reports, String field) {
+        return reports.values().stream().mapToLong(r -> ((Number) r.get(field)).longValue()).sum();
+    }
+}
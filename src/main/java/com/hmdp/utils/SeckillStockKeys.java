@@ -0,0 +1,65 @@
+package com.hmdp.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_STOCK_KEY;
+
+/**
+ * 秒杀库存分桶：单桶时使用 seckill:stock:{voucherId}，
+ * 分桶时库存均分到 seckill:stock:{voucherId}:{i}，用户按 id 散列到固定的桶，该桶售罄后依次探测后面的桶
+ */
+public class SeckillStockKeys {
+
+    private SeckillStockKeys() {
+    }
+
+    /**
+     * 全部库存 key，按桶编号排列
+     */
+    public static List<String> keys(Long voucherId, int buckets) {
+        List<String> keys = new ArrayList<>(Math.max(buckets, 1));
+        if (buckets <= 1) {
+            keys.add(SECKILL_STOCK_KEY + voucherId);
+            return keys;
+        }
+        for (int i = 0; i < buckets; i++) {
+            keys.add(SECKILL_STOCK_KEY + voucherId + ":" + i);
+        }
+        return keys;
+    }
+
+    /**
+     * 用户的探测顺序：从用户所属的桶开始，依次向后环绕
+     */
+    public static List<String> probeOrder(Long voucherId, int buckets, Long userId) {
+        List<String> keys = keys(voucherId, buckets);
+        if (keys.size() == 1) {
+            return keys;
+        }
+        int home = bucketOf(userId, keys.size());
+        List<String> ordered = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            ordered.add(keys.get((home + i) % keys.size()));
+        }
+        return ordered;
+    }
+
+    /**
+     * 把数量均分到各个桶，余数分给前面的桶
+     */
+    public static int[] split(int total, int buckets) {
+        int n = Math.max(buckets, 1);
+        int[] parts = new int[n];
+        for (int i = 0; i < n; i++) {
+            parts[i] = total / n + (i < total % n ? 1 : 0);
+        }
+        return parts;
+    }
+
+    static int bucketOf(Long userId, int buckets) {
+        // 连续的用户 id 打散到不同的桶
+        long h = userId * 0x9E3779B97F4A7C15L;
+        return (int) ((h >>> 32) % buckets);
+    }
+}
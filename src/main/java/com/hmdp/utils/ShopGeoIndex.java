@@ -0,0 +1,178 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.config.GeoProperties;
+import com.hmdp.entity.Shop;
+import com.hmdp.mapper.ShopMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.hmdp.utils.RedisConstants.SHOP_CHANGED_CHANNEL;
+
+/**
+ * 按店铺类型划分的进程内网格索引，启动时从 tb_shop 加载，
+ * 店铺新增或修改后通过发布订阅通知所有节点刷新对应的店铺
+ */
+@Slf4j
+@Component
+public class ShopGeoIndex implements MessageListener {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Resource
+    private ShopMapper shopMapper;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private GeoProperties geoProperties;
+
+    private volatile Map<Long, GeoGridIndex> indexes = new ConcurrentHashMap<>();
+    /**
+     * 店铺当前所在的类型，类型变更时需要从原类型的索引中删除
+     */
+    private volatile Map<Long, Long> shopTypes = new ConcurrentHashMap<>();
+    /**
+     * 加载完成前查询返回 null，由调用方降级到 Redis GEO
+     */
+    private volatile boolean ready;
+    /**
+     * 全量重建期间收到的变更，重建完成后在新索引上重新应用
+     */
+    private volatile Set<Long> changedDuringReload;
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SHOP_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 查询指定类型的附近店铺
+     *
+     * @return 索引未启用或未加载完成时返回 null
+     */
+    public List<GeoGridIndex.Hit> search(Long typeId, double x, double y, GeoGridIndex.Hit after, int limit) {
+        if (!ready || !geoProperties.getIndex().isEnabled()) {
+            return null;
+        }
+        GeoGridIndex index = indexes.get(typeId);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+        return index.search(x, y, geoProperties.getRadiusMeters(), after, limit);
+    }
+
+    /**
+     * 店铺新增或修改后调用，通知所有节点（包括本节点）刷新网格索引和搜索索引
+     */
+    public void shopChanged(Long shopId) {
+        stringRedisTemplate.convertAndSend(SHOP_CHANGED_CHANNEL, shopId.toString());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        refresh(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (geoProperties.getIndex().isEnabled()) {
+            reload();
+        }
+    }
+
+    /**
+     * 全量重建，新索引构建完成后整体替换，期间查询仍使用旧索引
+     */
+    @Scheduled(cron = "${hmdp.geo.index.reload-cron:0 30 3 * * ?}")
+    public void reload() {
+        if (!geoProperties.getIndex().isEnabled()) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        changedDuringReload = ConcurrentHashMap.newKeySet();
+        Map<Long, GeoGridIndex> newIndexes = new ConcurrentHashMap<>();
+        Map<Long, Long> newShopTypes = new ConcurrentHashMap<>();
+        long lastId = 0;
+        List<Shop> shops;
+        try {
+            // 按主键分批读取，只查询索引需要的字段
+            while (!(shops = shopMapper.selectList(new QueryWrapper<Shop>()
+                    .select("id", "type_id", "x", "y").gt("id", lastId)
+                    .orderByAsc("id").last("limit " + LOAD_BATCH_SIZE))).isEmpty()) {
+                for (Shop shop : shops) {
+                    put(newIndexes, newShopTypes, shop);
+                    lastId = shop.getId();
+                }
+            }
+        } catch (Exception e) {
+            changedDuringReload = null;
+            log.error("店铺网格索引加载失败", e);
+            return;
+        }
+        indexes = newIndexes;
+        shopTypes = newShopTypes;
+        Set<Long> changed = changedDuringReload;
+        changedDuringReload = null;
+        changed.forEach(this::refresh);
+        ready = true;
+        log.info("店铺网格索引加载完成，店铺数：{}，耗时：{}ms", newShopTypes.size(), System.currentTimeMillis() - begin);
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("shops", shopTypes.size());
+        Map<Long, Integer> types = new LinkedHashMap<>();
+        indexes.forEach((typeId, index) -> types.put(typeId, index.size()));
+        stats.put("types", types);
+        return stats;
+    }
+
+    private void refresh(Long shopId) {
+        Set<Long> changed = changedDuringReload;
+        if (changed != null) {
+            changed.add(shopId);
+        }
+        Shop shop = shopMapper.selectById(shopId);
+        if (shop == null) {
+            Long oldType = shopTypes.remove(shopId);
+            if (oldType != null && indexes.get(oldType) != null) {
+                indexes.get(oldType).remove(shopId);
+            }
+            return;
+        }
+        put(indexes, shopTypes, shop);
+    }
+
+    private void put(Map<Long, GeoGridIndex> indexes, Map<Long, Long> shopTypes, Shop shop) {
+        if (shop.getTypeId() == null || shop.getX() == null || shop.getY() == null) {
+            return;
+        }
+        Long oldType = shopTypes.put(shop.getId(), shop.getTypeId());
+        if (oldType != null && !oldType.equals(shop.getTypeId()) && indexes.get(oldType) != null) {
+            indexes.get(oldType).remove(shop.getId());
+        }
+        indexes.computeIfAbsent(shop.getTypeId(), k -> new GeoGridIndex(geoProperties.getIndex().getCellDegrees()))
+                .put(shop.getId(), shop.getX(), shop.getY());
+    }
+}
@@ -0,0 +1,278 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.thread.NamedThreadFactory;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.config.GeoProperties;
+import com.hmdp.entity.Shop;
+import com.hmdp.entity.ShopType;
+import com.hmdp.mapper.ShopMapper;
+import com.hmdp.mapper.ShopTypeMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import static com.hmdp.utils.RedisConstants.LOCK_SHOP_GEO_KEY;
+import static com.hmdp.utils.RedisConstants.SHOP_GEO_KEY;
+
+/**
+ * 维护 Redis 中按类型划分的店铺 GEO 数据 shop:geo:{typeId}：
+ * 全量重建按主键区间分片并行读取，写入影子 key 后原子 rename；
+ * 店铺新增、修改时增量 GEOADD，类型变更时从原类型中 ZREM
+ */
+@Slf4j
+@Component
+public class ShopGeoLoader {
+
+    private static final String SHADOW_SUFFIX = ":shadow";
+
+    @Resource
+    private ShopMapper shopMapper;
+    @Resource
+    private ShopTypeMapper shopTypeMapper;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private GeoProperties geoProperties;
+
+    private ExecutorService executor;
+    /**
+     * 全量重建期间发生变更的店铺，rename 之后重新同步
+     */
+    private volatile Set<Long> changedDuringRebuild;
+
+    private volatile long lastRebuildMillis;
+    private volatile long lastRebuildShops;
+    private volatile LocalDateTime lastRebuildTime;
+    /**
+     * 最近一次重建（或启动时检查）时 GEO 数据中的店铺总数，查询统计时不再访问数据库和Redis
+     */
+    private volatile long size;
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder incrementalAdds = new LongAdder();
+    private final LongAdder incrementalRemoves = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newFixedThreadPool(geoProperties.getLoader().getParallelism(),
+                new NamedThreadFactory("shop-geo-loader-", true));
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 启动时 Redis 中还没有任何店铺 GEO 数据则全量构建
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        Set<Long> typeIds = allTypeIds();
+        boolean exists = typeIds.stream()
+                .anyMatch(typeId -> Boolean.TRUE.equals(stringRedisTemplate.hasKey(SHOP_GEO_KEY + typeId)));
+        if (!exists) {
+            rebuild();
+        } else {
+            size = countShops(typeIds);
+        }
+    }
+
+    /**
+     * 全量重建，多个节点之间互斥
+     *
+     * @return 写入的店铺数，其他节点正在重建时返回 -1
+     */
+    @Scheduled(cron = "${hmdp.geo.loader.rebuild-cron:0 0 3 * * ?}")
+    public long rebuild() {
+        RLock lock = redissonClient.getLock(LOCK_SHOP_GEO_KEY);
+        if (!lock.tryLock()) {
+            return -1;
+        }
+        try {
+            return doRebuild();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 店铺新增或修改后同步 GEO 数据
+     *
+     * @param before 修改前的店铺，新增时为空
+     * @param after  修改后的店铺，为空表示已被删除
+     */
+    public void sync(Shop before, Shop after) {
+        Set<Long> changed = changedDuringRebuild;
+        Long id = after != null ? after.getId() : before != null ? before.getId() : null;
+        if (id == null) {
+            return;
+        }
+        if (changed != null) {
+            changed.add(id);
+        }
+        //1.类型变更或店铺删除时，从原类型中移除
+        if (before != null && before.getTypeId() != null
+                && (after == null || !Objects.equals(before.getTypeId(), after.getTypeId()))) {
+            stringRedisTemplate.opsForGeo().remove(SHOP_GEO_KEY + before.getTypeId(), id.toString());
+            incrementalRemoves.increment();
+        }
+        //2.写入当前类型，坐标变化时覆盖原坐标
+        if (after != null && after.getTypeId() != null && after.getX() != null && after.getY() != null) {
+            stringRedisTemplate.opsForGeo().add(SHOP_GEO_KEY + after.getTypeId(), new Point(after.getX(), after.getY()), id.toString());
+            incrementalAdds.increment();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size);
+        stats.put("rebuilds", rebuilds.sum());
+        stats.put("lastRebuildTime", lastRebuildTime);
+        stats.put("lastRebuildMillis", lastRebuildMillis);
+        stats.put("lastRebuildShops", lastRebuildShops);
+        stats.put("incrementalAdds", incrementalAdds.sum());
+        stats.put("incrementalRemoves", incrementalRemoves.sum());
+        return stats;
+    }
+
+    private long doRebuild() {
+        long begin = System.currentTimeMillis();
+        changedDuringRebuild = ConcurrentHashMap.newKeySet();
+        try {
+            //1.清理上次中断遗留的影子 key
+            Set<Long> typeIds = shopTypeIds();
+            typeIds.forEach(typeId -> stringRedisTemplate.delete(shadowKey(typeId)));
+            //2.按主键区间分片，并行读取并写入影子 key
+            long minId = selectId("min(id)");
+            long maxId = selectId("max(id)");
+            int chunkSize = geoProperties.getLoader().getChunkSize();
+            List<CompletableFuture<Integer>> futures = new ArrayList<>();
+            for (long from = minId; from <= maxId; from += chunkSize) {
+                long start = from;
+                futures.add(CompletableFuture.supplyAsync(() -> loadChunk(start, start + chunkSize), executor));
+            }
+            long count = futures.stream().mapToLong(CompletableFuture::join).sum();
+            //3.影子 key 原子替换正式 key，已经没有店铺的类型直接删除
+            Set<Long> allTypeIds = allTypeIds();
+            for (Long typeId : allTypeIds) {
+                String key = SHOP_GEO_KEY + typeId;
+                if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(shadowKey(typeId)))) {
+                    stringRedisTemplate.rename(shadowKey(typeId), key);
+                } else {
+                    stringRedisTemplate.delete(key);
+                }
+            }
+            //4.重新同步重建期间发生变更的店铺
+            Set<Long> changed = changedDuringRebuild;
+            changedDuringRebuild = null;
+            for (Long id : changed) {
+                resync(id);
+            }
+            size = countShops(allTypeIds);
+            lastRebuildMillis = System.currentTimeMillis() - begin;
+            lastRebuildShops = count;
+            lastRebuildTime = LocalDateTime.now();
+            rebuilds.increment();
+            log.info("店铺GEO数据重建完成，店铺数：{}，耗时：{}ms", count, lastRebuildMillis);
+            return count;
+        } finally {
+            changedDuringRebuild = null;
+        }
+    }
+
+    private int loadChunk(long from, long to) {
+        List<Shop> shops = shopMapper.selectList(new QueryWrapper<Shop>()
+                .select("id", "type_id", "x", "y").ge("id", from).lt("id", to));
+        List<Shop> located = shops.stream()
+                .filter(s -> s.getTypeId() != null && s.getX() != null && s.getY() != null)
+                .collect(Collectors.toList());
+        if (located.isEmpty()) {
+            return 0;
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (Shop shop : located) {
+                connection.geoAdd(shadowKey(shop.getTypeId()).getBytes(StandardCharsets.UTF_8),
+                        new Point(shop.getX(), shop.getY()), shop.getId().toString().getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        return located.size();
+    }
+
+    /**
+     * 重建期间的变更无法得知原类型，从其他类型中全部移除后再写入当前类型
+     */
+    private void resync(Long id) {
+        Shop shop = shopMapper.selectById(id);
+        for (Long typeId : allTypeIds()) {
+            if (shop == null || !typeId.equals(shop.getTypeId())) {
+                stringRedisTemplate.opsForGeo().remove(SHOP_GEO_KEY + typeId, id.toString());
+            }
+        }
+        sync(null, shop);
+    }
+
+    private long countShops(Set<Long> typeIds) {
+        long count = 0;
+        for (Long typeId : typeIds) {
+            Long n = stringRedisTemplate.opsForZSet().zCard(SHOP_GEO_KEY + typeId);
+            count += n == null ? 0 : n;
+        }
+        return count;
+    }
+
+    private long selectId(String column) {
+        return shopMapper.selectObjs(new QueryWrapper<Shop>().select(column)).stream()
+                .filter(Objects::nonNull).mapToLong(o -> ((Number) o).longValue()).findFirst().orElse(0L);
+    }
+
+    /**
+     * 当前有店铺的类型
+     */
+    private Set<Long> shopTypeIds() {
+        return shopMapper.selectObjs(new QueryWrapper<Shop>().select("distinct type_id")).stream()
+                .filter(Objects::nonNull).map(o -> ((Number) o).longValue()).collect(Collectors.toSet());
+    }
+
+    /**
+     * 店铺类型表中的类型以及当前有店铺的类型
+     */
+    private Set<Long> allTypeIds() {
+        Set<Long> typeIds = new HashSet<>(shopTypeIds());
+        shopTypeMapper.selectObjs(new QueryWrapper<ShopType>().select("id"))
+                .forEach(o -> typeIds.add(((Number) o).longValue()));
+        return typeIds;
+    }
+
+    private static String shadowKey(Long typeId) {
+        return SHOP_GEO_KEY + typeId + SHADOW_SUFFIX;
+    }
+}
@@ -0,0 +1,174 @@
+package com.hmdp.utils;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.config.SearchProperties;
+import com.hmdp.entity.Shop;
+import com.hmdp.mapper.ShopMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.SHOP_CHANGED_CHANNEL;
+
+/**
+ * 店铺名称和地址的进程内倒排索引，启动时从 tb_shop 加载，
+ * 与网格索引共用 shop:changed 通知，店铺新增或修改后所有节点刷新对应的店铺
+ */
+@Slf4j
+@Component
+public class ShopSearchIndex implements MessageListener {
+
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    @Resource
+    private ShopMapper shopMapper;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private SearchProperties searchProperties;
+
+    private volatile InvertedIndex index = new InvertedIndex();
+    /**
+     * 加载完成前查询返回 null，由调用方降级到数据库模糊查询
+     */
+    private volatile boolean ready;
+    /**
+     * 全量重建期间收到的变更，重建完成后在新索引上重新应用
+     */
+    private volatile Set<Long> changedDuringReload;
+
+    private volatile long lastBuildMillis;
+    private volatile LocalDateTime lastBuildTime;
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder queryMicros = new LongAdder();
+    private final LongAccumulator maxQueryMicros = new LongAccumulator(Math::max, 0);
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SHOP_CHANGED_CHANNEL));
+    }
+
+    /**
+     * 按相关度查询店铺
+     *
+     * @param after 上一页的最后一条，为空时从头开始
+     * @return 索引未启用或未加载完成时返回 null
+     */
+    public List<InvertedIndex.Hit> search(String keyword, InvertedIndex.Hit after, int limit) {
+        if (!ready || !searchProperties.isEnabled()) {
+            return null;
+        }
+        long begin = System.nanoTime();
+        try {
+            return index.search(keyword, after, limit);
+        } finally {
+            long micros = (System.nanoTime() - begin) / 1000;
+            queries.increment();
+            queryMicros.add(micros);
+            maxQueryMicros.accumulate(micros);
+        }
+    }
+
+    /**
+     * 刷新本节点索引中的店铺，其他节点通过 shop:changed 通知刷新
+     */
+    public void refresh(Long shopId) {
+        Set<Long> changed = changedDuringReload;
+        if (changed != null) {
+            changed.add(shopId);
+        }
+        Shop shop = shopMapper.selectById(shopId);
+        if (shop == null) {
+            index.remove(shopId);
+            return;
+        }
+        put(index, shop);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        refresh(Long.valueOf(new String(message.getBody(), StandardCharsets.UTF_8)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (searchProperties.isEnabled()) {
+            reload();
+        }
+    }
+
+    /**
+     * 全量重建，新索引构建完成后整体替换，期间查询仍使用旧索引
+     */
+    @Scheduled(cron = "${hmdp.search.reload-cron:0 40 3 * * ?}")
+    public void reload() {
+        if (!searchProperties.isEnabled()) {
+            return;
+        }
+        long begin = System.currentTimeMillis();
+        changedDuringReload = ConcurrentHashMap.newKeySet();
+        InvertedIndex newIndex = new InvertedIndex();
+        long lastId = 0;
+        List<Shop> shops;
+        try {
+            // 按主键分批读取，只查询索引需要的字段
+            while (!(shops = shopMapper.selectList(new QueryWrapper<Shop>()
+                    .select("id", "name", "address").gt("id", lastId)
+                    .orderByAsc("id").last("limit " + LOAD_BATCH_SIZE))).isEmpty()) {
+                for (Shop shop : shops) {
+                    put(newIndex, shop);
+                    lastId = shop.getId();
+                }
+            }
+        } catch (Exception e) {
+            changedDuringReload = null;
+            log.error("店铺搜索索引加载失败", e);
+            return;
+        }
+        index = newIndex;
+        Set<Long> changed = changedDuringReload;
+        changedDuringReload = null;
+        changed.forEach(this::refresh);
+        ready = true;
+        lastBuildMillis = System.currentTimeMillis() - begin;
+        lastBuildTime = LocalDateTime.now();
+        log.info("店铺搜索索引加载完成，店铺数：{}，词项数：{}，耗时：{}ms", newIndex.size(), newIndex.terms(), lastBuildMillis);
+    }
+
+    public Map<String, Object> stats() {
+        long count = queries.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", ready);
+        stats.put("shops", index.size());
+        stats.put("terms", index.terms());
+        stats.put("lastBuildTime", lastBuildTime);
+        stats.put("lastBuildMillis", lastBuildMillis);
+        stats.put("queries", count);
+        stats.put("avgQueryMicros", count == 0 ? 0D : (double) queryMicros.sum() / count);
+        stats.put("maxQueryMicros", maxQueryMicros.get());
+        return stats;
+    }
+
+    private void put(InvertedIndex index, Shop shop) {
+        index.put(shop.getId(), new String[]{shop.getName(), shop.getAddress()},
+                new double[]{searchProperties.getNameWeight(), searchProperties.getAddressWeight()});
+    }
+}
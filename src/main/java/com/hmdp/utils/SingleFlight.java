@@ -0,0 +1,61 @@
+package com.hmdp.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 请求合并：同一个 key 的并发调用只有一个线程真正执行加载，
+ * 其余线程挂在同一个 Future 上，加载完成后被直接唤醒，而不是轮询重试。
+ */
+public class SingleFlight<T> {
+
+    private final ConcurrentHashMap<String, CompletableFuture<T>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key     合并的维度，一般就是缓存 key
+     * @param loader  真正的加载逻辑，只会被领头线程执行
+     * @param timeout 跟随线程的最长等待时间
+     * @throws TimeoutException 跟随线程等待超时
+     */
+    public T execute(String key, Supplier<T> loader, long timeout, TimeUnit unit) throws TimeoutException {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> existing = inFlight.putIfAbsent(key, future);
+        if (existing == null) {
+            // 1.领头线程，执行加载并唤醒所有等待者
+            try {
+                T value = loader.get();
+                future.complete(value);
+                return value;
+            } catch (RuntimeException | Error e) {
+                future.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, future);
+            }
+        }
+        // 2.跟随线程，等待领头线程的结果
+        try {
+            return existing.get(timeout, unit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * 当前正在加载中的 key 数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+}
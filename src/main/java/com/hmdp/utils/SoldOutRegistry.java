@@ -0,0 +1,111 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.SeckillProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.Resource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_SOLD_OUT_CHANNEL;
+
+/**
+ * 秒杀券的本地售罄标记：Redis 库存扣减到 0 时由秒杀脚本广播 sold-out:{voucherId}，
+ * 各节点收到后直接在本地拒绝请求；补货时广播 reset:{voucherId} 清除标记。
+ * 标记超过有效期后失效，下一个请求重新执行秒杀脚本校验，避免通知丢失导致一直拒绝
+ */
+@Slf4j
+@Component
+public class SoldOutRegistry implements MessageListener {
+
+    private static final String SOLD_OUT = "sold-out:";
+    private static final String RESET = "reset:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+    @Resource
+    private SeckillProperties seckillProperties;
+
+    /**
+     * 优惠券id -> 标记售罄的时间
+     */
+    private final Map<Long, Long> soldOut = new ConcurrentHashMap<>();
+    private final LongAdder rejected = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(SECKILL_SOLD_OUT_CHANNEL));
+    }
+
+    /**
+     * 是否已售罄，为 true 时请求可以直接拒绝
+     */
+    public boolean isSoldOut(Long voucherId) {
+        Long markedAt = soldOut.get(voucherId);
+        if (markedAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - markedAt > seckillProperties.getSoldOutRecheckMillis()) {
+            soldOut.remove(voucherId, markedAt);
+            return false;
+        }
+        rejected.increment();
+        return true;
+    }
+
+    /**
+     * 本节点执行秒杀脚本发现库存不足时标记，不再广播
+     */
+    public void markSoldOut(Long voucherId) {
+        soldOut.put(voucherId, System.currentTimeMillis());
+    }
+
+    /**
+     * 补货后通知所有节点清除售罄标记
+     */
+    public void reset(Long voucherId) {
+        soldOut.remove(voucherId);
+        stringRedisTemplate.convertAndSend(SECKILL_SOLD_OUT_CHANNEL, RESET + voucherId);
+    }
+
+    /**
+     * 秒杀归档后清除本节点的标记
+     */
+    public void forget(Long voucherId) {
+        soldOut.remove(voucherId);
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        if (body.startsWith(SOLD_OUT)) {
+            markSoldOut(Long.valueOf(body.substring(SOLD_OUT.length())));
+        } else if (body.startsWith(RESET)) {
+            soldOut.remove(Long.valueOf(body.substring(RESET.length())));
+        } else {
+            log.warn("无法识别的售罄通知：{}", body);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Long> vouchers = new ArrayList<>(soldOut.keySet());
+        stats.put("soldOut", vouchers);
+        stats.put("rejected", rejected.sum());
+        return stats;
+    }
+}
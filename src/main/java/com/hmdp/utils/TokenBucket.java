@@ -0,0 +1,63 @@
+package com.hmdp.utils;
+
+/**
+ * 进程内令牌桶，容量和速率可以在运行中调整，调整时保留已有令牌（不超过新容量）。
+ * 时间由调用方传入，便于测试
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private double capacity;
+    private double ratePerSecond;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double capacity, double ratePerSecond, long nowNanos) {
+        this.capacity = capacity;
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = capacity;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * 尝试取一个令牌
+     *
+     * @return 0 表示取到，否则为还需等待的纳秒数
+     */
+    public synchronized long tryAcquire(long nowNanos) {
+        refill(nowNanos);
+        if (tokens >= 1) {
+            tokens -= 1;
+            return 0;
+        }
+        if (ratePerSecond <= 0) {
+            return NANOS_PER_SECOND;
+        }
+        return (long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / ratePerSecond);
+    }
+
+    public synchronized void resize(double capacity, double ratePerSecond, long nowNanos) {
+        refill(nowNanos);
+        this.capacity = capacity;
+        this.ratePerSecond = ratePerSecond;
+        this.tokens = Math.min(tokens, capacity);
+    }
+
+    public synchronized double capacity() {
+        return capacity;
+    }
+
+    public synchronized double ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    private void refill(long nowNanos) {
+        long elapsed = nowNanos - lastRefillNanos;
+        if (elapsed <= 0) {
+            return;
+        }
+        tokens = Math.min(capacity, tokens + elapsed * ratePerSecond / NANOS_PER_SECOND);
+        lastRefillNanos = nowNanos;
+    }
+}
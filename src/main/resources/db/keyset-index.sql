@@ -0,0 +1,10 @@
+-- ----------------------------
+-- 游标分页使用的索引，已有数据库执行一次即可
+-- tb_blog 按用户查询：(user_id) 二级索引隐含主键，可按 id 倒序直接定位游标
+-- tb_blog 热门笔记：按 (liked, id) 倒序定位游标，liked 改为 NOT NULL，否则点赞数为 NULL 的笔记不满足游标条件
+-- tb_shop 按类型查询已有 foreign_key_type(type_id) 索引
+-- ----------------------------
+ALTER TABLE `tb_blog` ADD INDEX `idx_user_id`(`user_id`) USING BTREE;
+UPDATE `tb_blog` SET `liked` = 0 WHERE `liked` IS NULL;
+ALTER TABLE `tb_blog` MODIFY `liked` int(8) UNSIGNED NOT NULL DEFAULT 0 COMMENT '点赞数量';
+ALTER TABLE `tb_blog` ADD INDEX `idx_liked`(`liked`, `id`) USING BTREE;
@@ -0,0 +1,4 @@
+-- ----------------------------
+-- 秒杀库存分桶数，已有数据库执行一次即可
+-- ----------------------------
+ALTER TABLE `tb_seckill_voucher` ADD COLUMN `buckets` int(4) NOT NULL DEFAULT 1 COMMENT 'Redis库存分桶数，1表示不分桶' AFTER `stock`;
@@ -0,0 +1,4 @@
+-- ----------------------------
+-- 秒杀预加载与归档按开始、结束时间扫描，已有数据库执行一次即可
+-- ----------------------------
+ALTER TABLE `tb_seckill_voucher` ADD INDEX `idx_begin_time`(`begin_time`), ADD INDEX `idx_end_time`(`end_time`);
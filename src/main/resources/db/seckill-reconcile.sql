@@ -0,0 +1,4 @@
+-- ----------------------------
+-- 对账按 (voucher_id, user_id) 分块遍历订单并按用户批量查询，一人一单校验也使用该索引，已有数据库执行一次即可
+-- ----------------------------
+ALTER TABLE `tb_voucher_order` ADD UNIQUE INDEX `idx_voucher_user`(`voucher_id`, `user_id`) USING BTREE;
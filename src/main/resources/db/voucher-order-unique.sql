@@ -0,0 +1,7 @@
+-- ----------------------------
+-- 一人一单的唯一约束：订单消息被重复认领、并发写入时由数据库拒绝第二条订单
+-- 已按旧版 seckill-reconcile.sql 建过普通索引 idx_voucher_user 的数据库执行一次即可
+-- 执行前先检查并人工处理重复订单：
+-- SELECT `voucher_id`, `user_id`, COUNT(*) FROM `tb_voucher_order` GROUP BY `voucher_id`, `user_id` HAVING COUNT(*) > 1;
+-- ----------------------------
+ALTER TABLE `tb_voucher_order` DROP INDEX `idx_voucher_user`, ADD UNIQUE INDEX `idx_voucher_user`(`voucher_id`, `user_id`) USING BTREE;
@@ -0,0 +1,38 @@
+-- 秒杀资格校验：库存与一人一单，成功时扣减库存、记录下单用户，并把订单写入消息队列，
+-- 库存扣减到 0 时广播售罄通知
+-- KEYS[1] 已下单用户集合 seckill:order:{voucherId}
+-- KEYS[2] 订单消息队列 stream:orders
+-- KEYS[3] 第 0 个库存桶，它最后写入，以它是否存在判断库存是否已加载
+-- KEYS[4..] 库存 key，单桶时为 seckill:stock:{voucherId}，分桶时按用户的探测顺序排列
+-- ARGV[1] 用户id，ARGV[2] 优惠券id，ARGV[3] 订单id，ARGV[4] 消息队列的近似最大长度，ARGV[5] 售罄通知频道
+-- 返回 0 成功，1 库存不足，2 重复下单，3 库存未加载
+if (not redis.call('get', KEYS[3])) then
+    return 3
+end
+if (redis.call('sismember', KEYS[1], ARGV[1]) == 1) then
+    return 2
+end
+-- 从用户所属的桶开始探测，扣减第一个有库存的桶
+local taken = false
+for i = 4, #KEYS do
+    local stock = tonumber(redis.call('get', KEYS[i]) or '0')
+    if (stock > 0) then
+        redis.call('incrby', KEYS[i], -1)
+        taken = true
+        break
+    end
+end
+if (not taken) then
+    return 1
+end
+redis.call('sadd', KEYS[1], ARGV[1])
+redis.call('xadd', KEYS[2], 'MAXLEN', '~', ARGV[4], '*', 'userId', ARGV[1], 'voucherId', ARGV[2], 'id', ARGV[3])
+-- 所有桶都已扣完时广播售罄
+local left = 0
+for i = 4, #KEYS do
+    left = left + tonumber(redis.call('get', KEYS[i]) or '0')
+end
+if (left <= 0) then
+    redis.call('publish', ARGV[5], 'sold-out:' .. ARGV[2])
+end
+return 0
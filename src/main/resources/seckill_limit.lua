@@ -0,0 +1,25 @@
+-- 秒杀集群限流：令牌桶，所有节点共享
+-- KEYS[1] 令牌桶 seckill:limit:{voucherId}，hash 字段 tokens、ts
+-- ARGV[1] 每秒生成的令牌数，ARGV[2] 桶容量，ARGV[3] 当前时间毫秒
+-- 返回 0 表示放行，否则为需要等待的毫秒数
+local rate = tonumber(ARGV[1])
+local capacity = tonumber(ARGV[2])
+local now = tonumber(ARGV[3])
+local bucket = redis.call('hmget', KEYS[1], 'tokens', 'ts')
+local tokens = tonumber(bucket[1]) or capacity
+local ts = tonumber(bucket[2]) or now
+-- 各节点时钟可能不一致，时间不回退
+if (now > ts) then
+    tokens = math.min(capacity, tokens + (now - ts) * rate / 1000)
+    ts = now
+end
+local wait = 0
+if (tokens >= 1) then
+    tokens = tokens - 1
+else
+    wait = math.ceil((1 - tokens) * 1000 / rate)
+end
+redis.call('hset', KEYS[1], 'tokens', tostring(tokens), 'ts', tostring(ts))
+-- 攒满所需时间的两倍后过期
+redis.call('pexpire', KEYS[1], math.ceil(capacity * 1000 / rate) * 2 + 1000)
+return wait
@@ -0,0 +1,14 @@
+-- 对账时原子地读取一张秒杀券在Redis中的状态
+-- KEYS[1] 已下单用户集合 seckill:order:{voucherId}
+-- KEYS[2..] 库存 key
+-- 返回 {各库存 key 的合计, 已下单用户数, 库存是否已加载 1/0}
+local stock = 0
+local loaded = 0
+for i = 2, #KEYS do
+    local v = redis.call('get', KEYS[i])
+    if (v) then
+        loaded = 1
+        stock = stock + tonumber(v)
+    end
+end
+return {stock, redis.call('scard', KEYS[1]), loaded}
@@ -1,43 +1,18 @@
 package com.hmdp;
 
-import com.hmdp.entity.Shop;
-import com.hmdp.service.impl.ShopServiceImpl;
-import com.hmdp.utils.RedisConstants;
+import com.hmdp.utils.ShopGeoLoader;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.data.geo.Point;
-import org.springframework.data.redis.connection.RedisGeoCommands;
-import org.springframework.data.redis.core.StringRedisTemplate;
 
 import javax.annotation.Resource;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
-import java.util.stream.Collectors;
 
 @SpringBootTest
 class HmDianPingApplicationTests {
     @Resource
-    ShopServiceImpl shopService;
-    @Resource
-    StringRedisTemplate stringRedisTemplate;
+    ShopGeoLoader shopGeoLoader;
     @Test
     void loadShopData(){
-        List<Shop> list = shopService.list();
-        Map<Long, List<Shop>> map = list.stream().collect(Collectors.groupingBy(Shop::getTypeId));
-        for(Map.Entry<Long,List<Shop>> entry : map.entrySet()){
-            Long typeId = entry.getKey();
-            String key = RedisConstants.SHOP_GEO_KEY + typeId;
-            List<Shop> value = entry.getValue();
-            List<RedisGeoCommands.GeoLocation<String>> locations =
-                    new ArrayList<>(value.size());
-            for(Shop shop : value){
-                locations.add(new RedisGeoCommands.GeoLocation<>(shop.getId().toString(),
-                        new Point(shop.getX(),shop.getY())));
-            }
-            stringRedisTemplate.opsForGeo().add(key,locations);
-        }
+        // 生产环境由 ShopGeoLoader 在启动和定时任务中重建，这里手动触发一次
+        shopGeoLoader.rebuild();
     }
 }
-
-
@@ -0,0 +1,142 @@
+package com.hmdp;
+
+import com.hmdp.dto.Result;
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.Voucher;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.RedisIdWorker;
+import com.hmdp.utils.UserHolder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * 对比秒杀下单的两种实现：请求线程内加锁、查询订单、扣减库存并写入订单，
+ * 与 Lua 脚本校验资格后异步写入订单。
+ * 关闭准入控制以比较下单路径本身。需要本地的 MySQL 与 Redis，通过 mvn test -P benchmark 运行，会向库中写入测试优惠券和订单
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "hmdp.seckill.admission.enabled=false")
+class SeckillBenchmarkTest {
+
+    private static final int STOCK = 1000;
+    private static final int USERS = 2000;
+    private static final int THREADS = 100;
+
+    @Resource
+    private IVoucherService voucherService;
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+    @Resource
+    private RedisIdWorker redisIdWorker;
+    @Resource
+    private RedissonClient redissonClient;
+    @Resource
+    private TransactionTemplate transactionTemplate;
+
+    @Test
+    void compareThroughput() throws InterruptedException {
+        long syncVoucher = addVoucher();
+        long asyncVoucher = addVoucher();
+        long syncMillis = run(userId -> synchronousSeckill(syncVoucher, userId));
+        long asyncMillis = run(userId -> voucherOrderService.seckillVoucher(asyncVoucher));
+        System.out.printf("%d个用户抢%d张券，%d个线程：同步下单 %dms（%.0f次/秒），Lua+异步下单 %dms（%.0f次/秒）%n",
+                USERS, STOCK, THREADS,
+                syncMillis, USERS * 1000.0 / syncMillis,
+                asyncMillis, USERS * 1000.0 / asyncMillis);
+    }
+
+    private long run(Function<Long, Result> seckill) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch latch = new CountDownLatch(USERS);
+        AtomicInteger succeeded = new AtomicInteger();
+        long begin = System.currentTimeMillis();
+        for (long i = 1; i <= USERS; i++) {
+            long userId = i;
+            executor.submit(() -> {
+                UserDTO user = new UserDTO();
+                user.setId(userId);
+                UserHolder.saveUser(user);
+                try {
+                    if (Boolean.TRUE.equals(seckill.apply(userId).getSuccess())) {
+                        succeeded.incrementAndGet();
+                    }
+                } finally {
+                    UserHolder.removeUser();
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        long cost = System.currentTimeMillis() - begin;
+        executor.shutdown();
+        System.out.printf("成功下单：%d%n", succeeded.get());
+        return cost;
+    }
+
+    /**
+     * 改造前的下单流程：查询秒杀券、按用户加锁、事务内查询订单、扣减库存、写入订单
+     */
+    private Result synchronousSeckill(long voucherId, long userId) {
+        SeckillVoucher voucher = seckillVoucherService.getById(voucherId);
+        if (voucher.getStock() < 1) {
+            return Result.fail("库存不足");
+        }
+        RLock lock = redissonClient.getLock("lock:order:" + userId);
+        if (!lock.tryLock()) {
+            return Result.fail("不可重复下单");
+        }
+        try {
+            return transactionTemplate.execute(status -> {
+                int count = voucherOrderService.query().eq("user_id", userId).eq("voucher_id", voucherId).count();
+                if (count > 0) {
+                    return Result.fail("该优惠券只能购买一张");
+                }
+                boolean success = seckillVoucherService.update()
+                        .setSql("stock = stock - 1").eq("voucher_id", voucherId).gt("stock", 0).update();
+                if (!success) {
+                    return Result.fail("库存不足");
+                }
+                VoucherOrder order = new VoucherOrder();
+                order.setId(redisIdWorker.nextId("order"));
+                order.setUserId(userId);
+                order.setVoucherId(voucherId);
+                voucherOrderService.save(order);
+                return Result.ok(order.getId());
+            });
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long addVoucher() {
+        Voucher voucher = new Voucher();
+        voucher.setShopId(1L);
+        voucher.setTitle("秒杀压测券");
+        voucher.setPayValue(100L);
+        voucher.setActualValue(200L);
+        voucher.setType(1);
+        voucher.setStock(STOCK);
+        voucher.setBeginTime(LocalDateTime.now().minusDays(1));
+        voucher.setEndTime(LocalDateTime.now().plusDays(1));
+        voucherService.addSeckillVoucher(voucher);
+        return voucher.getId();
+    }
+}
@@ -0,0 +1,92 @@
+package com.hmdp;
+
+import com.hmdp.dto.UserDTO;
+import com.hmdp.entity.Voucher;
+import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.service.IVoucherService;
+import com.hmdp.utils.UserHolder;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import javax.annotation.Resource;
+import java.time.LocalDateTime;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对比单个库存 key 与分桶库存在高并发下的吞吐，以及两者最终成功下单数是否一致。
+ * 关闭准入控制以比较下单路径本身。需要本地的 MySQL 与 Redis，通过 mvn test -P benchmark 运行，会向库中写入测试优惠券和订单
+ */
+@Tag("benchmark")
+@SpringBootTest(properties = "hmdp.seckill.admission.enabled=false")
+class SeckillBucketBenchmarkTest {
+
+    private static final int STOCK = 1000;
+    private static final int USERS = 5000;
+    private static final int THREADS = 200;
+    private static final int BUCKETS = 8;
+
+    @Resource
+    private IVoucherService voucherService;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+
+    @Test
+    void compareBuckets() throws InterruptedException {
+        long single = addVoucher(1);
+        long bucketed = addVoucher(BUCKETS);
+        long singleMillis = run(single);
+        long bucketedMillis = run(bucketed);
+        System.out.printf("%d个用户抢%d张券，%d个线程：单个库存key %dms（%.0f次/秒），%d个桶 %dms（%.0f次/秒）%n",
+                USERS, STOCK, THREADS,
+                singleMillis, USERS * 1000.0 / singleMillis,
+                BUCKETS, bucketedMillis, USERS * 1000.0 / bucketedMillis);
+    }
+
+    private long run(long voucherId) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch latch = new CountDownLatch(USERS);
+        AtomicInteger succeeded = new AtomicInteger();
+        long begin = System.currentTimeMillis();
+        for (long i = 1; i <= USERS; i++) {
+            long userId = i;
+            executor.submit(() -> {
+                UserDTO user = new UserDTO();
+                user.setId(userId);
+                UserHolder.saveUser(user);
+                try {
+                    if (Boolean.TRUE.equals(voucherOrderService.seckillVoucher(voucherId).getSuccess())) {
+                        succeeded.incrementAndGet();
+                    }
+                } finally {
+                    UserHolder.removeUser();
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        long cost = System.currentTimeMillis() - begin;
+        executor.shutdown();
+        // 分桶后只要总库存还有剩余就不会拒绝，成功数应与单桶一致
+        System.out.printf("成功下单：%d%n", succeeded.get());
+        return cost;
+    }
+
+    private long addVoucher(int buckets) {
+        Voucher voucher = new Voucher();
+        voucher.setShopId(1L);
+        voucher.setTitle("秒杀分桶压测券");
+        voucher.setPayValue(100L);
+        voucher.setActualValue(200L);
+        voucher.setType(1);
+        voucher.setStock(STOCK);
+        voucher.setBuckets(buckets);
+        voucher.setBeginTime(LocalDateTime.now().minusDays(1));
+        voucher.setEndTime(LocalDateTime.now().plusDays(1));
+        voucherService.addSeckillVoucher(voucher);
+        return voucher.getId();
+    }
+}
@@ -0,0 +1,76 @@
+package com.hmdp;
+
+import com.hmdp.utils.GeoGridIndex;
+import com.hmdp.utils.ShopGeoIndex;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.geo.Circle;
+import org.springframework.data.geo.Point;
+import org.springframework.data.redis.connection.RedisGeoCommands;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import javax.annotation.Resource;
+import java.util.List;
+
+import static com.hmdp.utils.RedisConstants.SHOP_GEO_KEY;
+
+/**
+ * 对比附近店铺翻页的两种实现：Redis GEORADIUS limit(end) 后跳过前几页，与进程内网格索引的游标翻页。
+ * 需要本地的 MySQL 与 Redis，并已导入 shop:geo 数据，通过 mvn test -P benchmark 运行
+ */
+@Tag("benchmark")
+@SpringBootTest
+class ShopGeoBenchmarkTest {
+
+    private static final long TYPE_ID = 1L;
+    private static final double X = 120.149993;
+    private static final double Y = 30.334229;
+    private static final int PAGE_SIZE = 5;
+    private static final int PAGES = 20;
+    private static final int ROUNDS = 200;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+    @Resource
+    private ShopGeoIndex shopGeoIndex;
+
+    @Test
+    void compareDeepPaging() {
+        shopGeoIndex.reload();
+        // 预热
+        redisPages();
+        indexPages();
+        long begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            redisPages();
+        }
+        long redisNanos = System.nanoTime() - begin;
+        begin = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            indexPages();
+        }
+        long indexNanos = System.nanoTime() - begin;
+        System.out.printf("翻%d页 x %d轮：Redis GEO %.1fms，网格索引 %.1fms%n",
+                PAGES, ROUNDS, redisNanos / 1e6, indexNanos / 1e6);
+    }
+
+    private void redisPages() {
+        for (int page = 1; page <= PAGES; page++) {
+            int end = page * PAGE_SIZE;
+            stringRedisTemplate.opsForGeo().radius(SHOP_GEO_KEY + TYPE_ID, new Circle(new Point(X, Y), 5000),
+                    RedisGeoCommands.GeoRadiusCommandArgs.newGeoRadiusArgs().includeDistance().sortAscending().limit(end));
+        }
+    }
+
+    private void indexPages() {
+        GeoGridIndex.Hit after = null;
+        for (int page = 1; page <= PAGES; page++) {
+            List<GeoGridIndex.Hit> hits = shopGeoIndex.search(TYPE_ID, X, Y, after, PAGE_SIZE);
+            if (hits.isEmpty()) {
+                break;
+            }
+            after = hits.get(hits.size() - 1);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.hmdp.loadtest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 压测使用的本地 redis-server 进程：随机端口、不持久化，需要 Redis 5.0 以上（订单队列使用 Stream）。
+ * 可执行文件默认从 PATH 中查找，也可以通过 -Dloadtest.redis-server 指定
+ */
+class LocalRedisServer {
+
+    private static final long START_TIMEOUT_MILLIS = 10000;
+
+    private final int port;
+    private Process process;
+
+    LocalRedisServer() {
+        this.port = freePort();
+    }
+
+    int getPort() {
+        return port;
+    }
+
+    void start() {
+        String executable = System.getProperty("loadtest.redis-server", "redis-server");
+        try {
+            process = new ProcessBuilder(executable, "--port", String.valueOf(port),
+                    "--save", "", "--appendonly", "no", "--bind", "127.0.0.1")
+                    .redirectErrorStream(true)
+                    .redirectOutput(new File(System.getProperty("java.io.tmpdir"), "loadtest-redis-" + port + ".log"))
+                    .start();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法启动 " + executable + "，请安装 Redis 或通过 -Dloadtest.redis-server 指定路径", e);
+        }
+        long deadline = System.currentTimeMillis() + START_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("redis-server 启动失败，退出码：" + process.exitValue());
+            }
+            if (ping()) {
+                return;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        stop();
+        throw new IllegalStateException("redis-server 启动超时，端口：" + port);
+    }
+
+    void stop() {
+        if (process == null) {
+            return;
+        }
+        process.destroy();
+        try {
+            if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+        }
+    }
+
+    private boolean ping() {
+        try (Socket socket = new Socket("127.0.0.1", port)) {
+            OutputStream out = socket.getOutputStream();
+            out.write("PING\r\n".getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buf = new byte[7];
+            int n = in.read(buf);
+            return n > 0 && new String(buf, 0, n, StandardCharsets.UTF_8).startsWith("+PONG");
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new IllegalStateException("无法分配端口", e);
+        }
+    }
+}
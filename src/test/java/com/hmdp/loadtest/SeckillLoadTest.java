@@ -0,0 +1,244 @@
+package com.hmdp.loadtest;
+
+import cn.hutool.core.lang.UUID;
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.hmdp.entity.SeckillVoucher;
+import com.hmdp.entity.Voucher;
+import com.hmdp.entity.VoucherOrder;
+import com.hmdp.service.ISeckillVoucherService;
+import com.hmdp.service.IVoucherOrderService;
+import com.hmdp.service.IVoucherService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import javax.annotation.Resource;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.hmdp.utils.RedisConstants.LOGIN_USER_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 秒杀端到端压测：启动完整应用，Redis 使用本地 redis-server 进程，数据库使用内嵌 H2，
+ * 模拟大量已登录用户并发请求 POST /voucher-order/seckill/{id}，每个用户请求多次以检验一人一单，
+ * 等订单队列消费完后统计吞吐、延迟分位数、超卖数和重复订单数。
+ * 通过 mvn test -P loadtest 运行，规模可用系统属性调整：
+ * -Dloadtest.users、-Dloadtest.threads、-Dloadtest.stock、-Dloadtest.buckets、-Dloadtest.requests-per-user，
+ * 应用配置同样可以用系统属性覆盖，例如 -Dhmdp.seckill.admission.enabled=false
+ */
+@Tag("loadtest")
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class SeckillLoadTest {
+
+    private static final int USERS = Integer.getInteger("loadtest.users", 5000);
+    private static final int THREADS = Integer.getInteger("loadtest.threads", 200);
+    private static final int STOCK = Integer.getInteger("loadtest.stock", 1000);
+    private static final int BUCKETS = Integer.getInteger("loadtest.buckets", 1);
+    private static final int REQUESTS_PER_USER = Integer.getInteger("loadtest.requests-per-user", 2);
+    private static final long DRAIN_TIMEOUT_MILLIS = 60000;
+
+    private static final LocalRedisServer REDIS = new LocalRedisServer();
+
+    @DynamicPropertySource
+    static void redisProperties(DynamicPropertyRegistry registry) {
+        REDIS.start();
+        registry.add("spring.redis.port", REDIS::getPort);
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        REDIS.stop();
+    }
+
+    @LocalServerPort
+    private int port;
+    @Resource
+    private IVoucherService voucherService;
+    @Resource
+    private ISeckillVoucherService seckillVoucherService;
+    @Resource
+    private IVoucherOrderService voucherOrderService;
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Test
+    void seckill() throws Exception {
+        System.setProperty("http.maxConnections", String.valueOf(THREADS));
+        long voucherId = addVoucher();
+        List<String> tokens = login(USERS);
+
+        //1.每个用户请求 REQUESTS_PER_USER 次，请求交错提交，同一用户的请求会并发
+        int total = USERS * REQUESTS_PER_USER;
+        long[] latencies = new long[total];
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger throttled = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch latch = new CountDownLatch(total);
+        URL url = new URL("http://127.0.0.1:" + port + "/voucher-order/seckill/" + voucherId);
+        long begin = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            int n = i;
+            String token = tokens.get(i % USERS);
+            executor.submit(() -> {
+                long start = System.nanoTime();
+                try {
+                    int status = post(url, token, succeeded);
+                    if (status == 429) {
+                        throttled.incrementAndGet();
+                    } else if (status != 200) {
+                        errors.incrementAndGet();
+                    }
+                } catch (IOException e) {
+                    errors.incrementAndGet();
+                } finally {
+                    latencies[n] = System.nanoTime() - start;
+                    latch.countDown();
+                }
+            });
+        }
+        latch.await();
+        long elapsedNanos = System.nanoTime() - begin;
+        executor.shutdown();
+
+        //2.等待订单队列把Redis中的订单全部写入数据库
+        long orders = drain(voucherId);
+
+        //3.统计
+        SeckillVoucher seckillVoucher = seckillVoucherService.getById(voucherId);
+        long oversell = Math.max(0, orders - STOCK) + Math.max(0, -seckillVoucher.getStock());
+        long duplicates = voucherOrderService.listObjs(new QueryWrapper<VoucherOrder>()
+                .select("user_id").eq("voucher_id", voucherId)
+                .groupBy("user_id").having("count(*) > 1")).size();
+        Arrays.sort(latencies);
+        System.out.printf("用户数：%d，每人请求：%d，并发线程：%d，库存：%d，分桶：%d%n",
+                USERS, REQUESTS_PER_USER, THREADS, STOCK, BUCKETS);
+        System.out.printf("请求数：%d，耗时：%dms，吞吐：%.0f次/秒%n",
+                total, elapsedNanos / 1_000_000, total * 1e9 / elapsedNanos);
+        System.out.printf("延迟 p50：%.2fms，p99：%.2fms，最大：%.2fms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.99), latencies[total - 1] / 1e6);
+        System.out.printf("下单成功：%d，限流拒绝：%d，错误：%d，数据库订单：%d，剩余库存：%d%n",
+                succeeded.get(), throttled.get(), errors.get(), orders, seckillVoucher.getStock());
+        System.out.printf("超卖：%d，重复订单：%d%n", oversell, duplicates);
+
+        assertEquals(0, oversell, "超卖");
+        assertEquals(0, duplicates, "重复订单");
+        assertEquals(succeeded.get(), orders, "下单成功数与数据库订单数不一致");
+        assertEquals(STOCK, orders + seckillVoucher.getStock(), "订单数与剩余库存之和不等于初始库存");
+    }
+
+    /**
+     * @return HTTP 状态码，响应中 success 为 true 时计入成功数
+     */
+    private static int post(URL url, String token, AtomicInteger succeeded) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("authorization", token);
+        connection.setConnectTimeout(5000);
+        connection.setReadTimeout(30000);
+        int status = connection.getResponseCode();
+        // 读完响应体，连接才能被复用
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String body = in == null ? "" : read(in);
+        if (status == 200 && body.contains("\"success\":true")) {
+            succeeded.incrementAndGet();
+        }
+        return status;
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream input = in) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buf = new byte[1024];
+            int n;
+            while ((n = input.read(buf)) > 0) {
+                out.write(buf, 0, n);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 等到数据库订单数与Redis已下单用户数一致
+     */
+    private long drain(long voucherId) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MILLIS;
+        while (true) {
+            Long buyers = stringRedisTemplate.opsForSet().size(SECKILL_ORDER_KEY + voucherId);
+            long orders = voucherOrderService.query().eq("voucher_id", voucherId).count();
+            if ((buyers != null && orders >= buyers) || System.currentTimeMillis() > deadline) {
+                return orders;
+            }
+            Thread.sleep(200);
+        }
+    }
+
+    /**
+     * 直接在Redis中写入登录态，与 UserServiceImpl 登录后写入的结构一致
+     */
+    private List<String> login(int users) {
+        List<String> tokens = new ArrayList<>(users);
+        for (int i = 0; i < users; i++) {
+            tokens.add(UUID.randomUUID().toString(true));
+        }
+        stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int i = 0; i < users; i++) {
+                byte[] key = (LOGIN_USER_KEY + tokens.get(i)).getBytes(StandardCharsets.UTF_8);
+                String userId = String.valueOf(i + 1);
+                connection.hSet(key, bytes("id"), bytes(userId));
+                connection.hSet(key, bytes("nickName"), bytes("user_" + userId));
+                connection.hSet(key, bytes("icon"), bytes(""));
+            }
+            return null;
+        });
+        Collections.shuffle(tokens);
+        return tokens;
+    }
+
+    private long addVoucher() {
+        Voucher voucher = new Voucher();
+        voucher.setShopId(1L);
+        voucher.setTitle("秒杀压测券");
+        voucher.setPayValue(100L);
+        voucher.setActualValue(200L);
+        voucher.setType(1);
+        voucher.setStock(STOCK);
+        voucher.setBuckets(BUCKETS);
+        voucher.setBeginTime(LocalDateTime.now().minusDays(1));
+        voucher.setEndTime(LocalDateTime.now().plusDays(1));
+        voucherService.addSeckillVoucher(voucher);
+        return voucher.getId();
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.ceil(p * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,91 @@
+package com.hmdp.utils;
+
+import cn.hutool.core.lang.TypeReference;
+import com.hmdp.entity.Shop;
+import com.hmdp.entity.ShopType;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCacheCodecTest {
+
+    private final BinaryCacheCodec codec = new BinaryCacheCodec(64);
+
+    @Test
+    void shopRoundTripIsSmallerThanJson() {
+        Shop shop = shop();
+        byte[] bytes = codec.encode(shop);
+        assertEquals(shop, codec.decode(bytes, Shop.class));
+        assertTrue(bytes.length < new JsonCacheCodec().encode(shop).length);
+    }
+
+    @Test
+    void listRoundTrip() {
+        ShopType food = new ShopType();
+        food.setId(1L);
+        food.setName("美食");
+        food.setSort(1);
+        ShopType ktv = new ShopType();
+        ktv.setId(2L);
+        ktv.setName("KTV");
+        Type type = new TypeReference<List<ShopType>>() {}.getType();
+        List<ShopType> list = Arrays.asList(food, ktv);
+        assertEquals(list, codec.decode(codec.encode(list), type));
+    }
+
+    @Test
+    void logicalExpireRoundTrip() {
+        RedisData redisData = new RedisData();
+        redisData.setExpireTime(LocalDateTime.of(2026, 1, 1, 12, 0, 0, 123000000));
+        redisData.setData(shop());
+        RedisData decoded = codec.decodeLogical(codec.encodeLogical(redisData), Shop.class);
+        assertEquals(redisData, decoded);
+    }
+
+    @Test
+    void logicalExpireWithRecomputeCostRoundTrip() {
+        RedisData redisData = new RedisData();
+        redisData.setExpireTime(LocalDateTime.of(2026, 1, 1, 12, 0, 0));
+        redisData.setData(shop());
+        redisData.setRecomputeMillis(35L);
+        RedisData decoded = codec.decodeLogical(codec.encodeLogical(redisData), Shop.class);
+        assertEquals(redisData, decoded);
+    }
+
+    @Test
+    void legacyJsonIsNotBinary() {
+        byte[] json = new JsonCacheCodec().encode(shop());
+        assertTrue(!BinaryCacheCodec.isBinary(json));
+        assertNull(codec.decode(json, Shop.class));
+    }
+
+    private static Shop shop() {
+        StringBuilder images = new StringBuilder();
+        for (int i = 0; i < 6; i++) {
+            images.append("https://qcloud.dpfile.com/pc/jiclIsCKmOI2arxKN1Uf0Hx3PucIJH8q0QSz-Z8llzcN56-_QiKuOvyio1OOxsRtFoXqu0G3iT2T27qat3WhLVEuLYk00OmSS1IdNpm8K8sG4JN9RIm2mTKcbLtc2o2vfCF2ubeXzk49OsGrXt_KYDCngOyCwZK-s3fqawWswzk.jpg,");
+        }
+        return new Shop()
+                .setId(1L)
+                .setName("103茶餐厅")
+                .setTypeId(1L)
+                .setImages(images.toString())
+                .setArea("大关")
+                .setAddress("金华路锦昌文华苑29号")
+                .setX(120.149192)
+                .setY(30.316078)
+                .setAvgPrice(80L)
+                .setSold(4215)
+                .setComments(3035)
+                .setScore(37)
+                .setOpenHours("10:00-22:00")
+                .setCreateTime(LocalDateTime.of(2021, 12, 22, 18, 10, 39))
+                .setUpdateTime(LocalDateTime.of(2022, 1, 13, 17, 32, 19));
+    }
+}
@@ -0,0 +1,55 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BloomFilterTest {
+
+    @Test
+    void noFalseNegativesAndBoundedFalsePositives() {
+        BloomFilter filter = new BloomFilter(10000, 0.01);
+        for (long id = 1; id <= 10000; id++) {
+            filter.put(id);
+        }
+        for (long id = 1; id <= 10000; id++) {
+            assertTrue(filter.mightContain(id));
+        }
+        int falsePositives = 0;
+        for (long id = 10001; id <= 110000; id++) {
+            if (filter.mightContain(id)) {
+                falsePositives++;
+            }
+        }
+        // 期望误判率1%，留出余量
+        assertTrue(falsePositives < 2000, "误判次数：" + falsePositives);
+    }
+
+    @Test
+    void redisBytesRoundTrip() {
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        for (long id = 1; id <= 500; id++) {
+            filter.put(id);
+        }
+        byte[] bytes = filter.toRedisBytes();
+        assertEquals(filter.getNumBits() / 8, bytes.length);
+
+        BloomFilter copy = new BloomFilter(1000, 0.01);
+        copy.loadRedisBytes(bytes);
+        for (long i = 0; i < filter.getNumBits(); i++) {
+            assertEquals(filter.get(i), copy.get(i));
+        }
+    }
+
+    @Test
+    void redisBitOrderIsMostSignificantFirst() {
+        BloomFilter filter = new BloomFilter(64, 1);
+        // SETBIT key 0 1 对应第一个字节 0x80
+        filter.set(0);
+        filter.set(9);
+        byte[] bytes = filter.toRedisBytes();
+        assertEquals((byte) 0x80, bytes[0]);
+        assertEquals((byte) 0x40, bytes[1]);
+    }
+}
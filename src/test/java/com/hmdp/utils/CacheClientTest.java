@@ -0,0 +1,133 @@
+package com.hmdp.utils;
+
+import cn.hutool.json.JSONUtil;
+import com.hmdp.config.CacheProperties;
+import com.hmdp.entity.Shop;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CacheClientTest {
+
+    private static final String KEY_PREFIX = "cache:shop:";
+
+    private final CacheClient client = new CacheClient();
+
+    @Test
+    void earlyRefreshIsRareFarFromExpiry() {
+        // 剩余 30 分钟、重建 20ms，即使随机数很小也不会提前刷新
+        assertFalse(CacheClient.shouldRefreshEarly(1800_000, 20, 1.0, 1e-9));
+    }
+
+    @Test
+    void earlyRefreshBecomesLikelyNearExpiry() {
+        int refreshed = 0;
+        for (int i = 1; i < 1000; i++) {
+            if (CacheClient.shouldRefreshEarly(10, 20, 1.0, i / 1000.0)) {
+                refreshed++;
+            }
+        }
+        // 剩余时间小于重建耗时时，大部分请求都会触发提前刷新
+        assertTrue(refreshed > 500);
+    }
+
+    @Test
+    void largerBetaRefreshesEarlier() {
+        assertFalse(CacheClient.shouldRefreshEarly(1000, 20, 1.0, 0.1));
+        assertTrue(CacheClient.shouldRefreshEarly(1000, 20, 50.0, 0.1));
+    }
+
+    @Test
+    void plainEntityJsonIsNotLogicalData() {
+        assertNull(new JsonCacheCodec().decodeLogical(plainShopJson(), Shop.class));
+    }
+
+    /**
+     * 策略从互斥锁切换为逻辑过期后，Redis 中仍有互斥锁路径写入的普通实体 JSON，应按未命中回源重建
+     */
+    @Test
+    void logicalExpireTreatsPlainEntityJsonAsMiss() {
+        ValueOperations<String, byte[]> bytes = mockRedis();
+        when(bytes.get(KEY_PREFIX + 1)).thenReturn(plainShopJson());
+        Shop shop = shop();
+        CacheSpec<Long, Shop> spec = logicalSpec(id -> shop);
+
+        assertEquals(shop, client.get(spec, 1L));
+        verify(bytes).set(eq(KEY_PREFIX + 1), any(byte[].class), anyLong(), eq(TimeUnit.SECONDS));
+    }
+
+    @Test
+    void warmUpReloadsPlainEntityJson() {
+        ValueOperations<String, byte[]> bytes = mockRedis();
+        when(bytes.multiGet(Collections.singletonList(KEY_PREFIX + 1)))
+                .thenReturn(Collections.singletonList(plainShopJson()));
+        CacheSpec<Long, Shop> spec = logicalSpec(id -> shop());
+
+        assertEquals(1, client.warmUp(spec, Collections.singletonList(1L), Duration.ofMinutes(1)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private ValueOperations<String, byte[]> mockRedis() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        ValueOperations<String, String> strings = mock(ValueOperations.class);
+        when(stringRedisTemplate.opsForValue()).thenReturn(strings);
+        when(strings.setIfAbsent(anyString(), anyString(), anyLong(), any(TimeUnit.class))).thenReturn(true);
+        RedisTemplate<String, byte[]> byteRedisTemplate = mock(RedisTemplate.class);
+        ValueOperations<String, byte[]> bytes = mock(ValueOperations.class);
+        when(byteRedisTemplate.opsForValue()).thenReturn(bytes);
+        ReflectionTestUtils.setField(client, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(client, "byteRedisTemplate", byteRedisTemplate);
+        ReflectionTestUtils.setField(client, "defaultCodec", new JsonCacheCodec());
+        ReflectionTestUtils.setField(client, "localCache", mock(LocalCache.class));
+        ReflectionTestUtils.setField(client, "cacheMetrics", new CacheMetrics());
+        ReflectionTestUtils.setField(client, "cacheProperties", new CacheProperties());
+        ReflectionTestUtils.setField(client, "cacheRebuildExecutor", mock(CacheRebuildExecutor.class));
+        return bytes;
+    }
+
+    private static CacheSpec<Long, Shop> logicalSpec(Function<Long, Shop> dbFallback) {
+        return CacheSpec.<Long, Shop>builder()
+                .keyPrefix(KEY_PREFIX)
+                .type(Shop.class)
+                .dbFallback(dbFallback)
+                .batchFallback((List<Long> ids) -> Collections.singletonMap(ids.get(0), dbFallback.apply(ids.get(0))))
+                .ttl(30L)
+                .strategy(CacheStrategy.LOGICAL_EXPIRE)
+                .build();
+    }
+
+    private static byte[] plainShopJson() {
+        return JSONUtil.toJsonStr(shop()).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Shop shop() {
+        Shop shop = new Shop();
+        shop.setId(1L);
+        shop.setName("103茶餐厅");
+        shop.setTypeId(1L);
+        shop.setX(120.149192);
+        shop.setY(30.316078);
+        return shop;
+    }
+}
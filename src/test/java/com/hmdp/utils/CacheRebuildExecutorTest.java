@@ -0,0 +1,46 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.CacheProperties;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.Mockito.mock;
+
+class CacheRebuildExecutorTest {
+
+    /**
+     * 通过关闭检查后线程池才拒绝任务（与关闭并发），key 应被释放，之后的重建不会被一直去重
+     */
+    @Test
+    void rejectedTaskReleasesKey() {
+        CacheRebuildExecutor rebuildExecutor = new CacheRebuildExecutor();
+        ReflectionTestUtils.setField(rebuildExecutor, "cacheProperties", new CacheProperties());
+        ReflectionTestUtils.setField(rebuildExecutor, "hotKeyDetector", mock(HotKeyDetector.class));
+        ReflectionTestUtils.setField(rebuildExecutor, "executor", new RejectingExecutor());
+
+        assertFalse(rebuildExecutor.submit("cache:shop:1", () -> { }));
+        assertFalse(rebuildExecutor.submit("cache:shop:1", () -> { }));
+
+        assertEquals(0L, rebuildExecutor.stats().get("deduplicated"));
+        assertEquals(2L, rebuildExecutor.stats().get("dropped"));
+        assertEquals(0L, rebuildExecutor.stats().get("submitted"));
+    }
+
+    private static class RejectingExecutor extends ThreadPoolExecutor {
+        private RejectingExecutor() {
+            super(1, 1, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            throw new RejectedExecutionException("shutting down");
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoGridIndexTest {
+
+    private static final double X = 120.149993;
+    private static final double Y = 30.334229;
+    private static final double RADIUS = 5000;
+
+    @Test
+    void cursorPagingMatchesBruteForce() {
+        GeoGridIndex index = new GeoGridIndex(0.01);
+        List<double[]> points = randomPoints(2000, 42);
+        for (int i = 0; i < points.size(); i++) {
+            index.put(i + 1, points.get(i)[0], points.get(i)[1]);
+        }
+        List<Long> expected = bruteForce(points);
+        List<Long> actual = new ArrayList<>();
+        GeoGridIndex.Hit after = null;
+        List<GeoGridIndex.Hit> page;
+        do {
+            page = index.search(X, Y, RADIUS, after, 7);
+            page.forEach(hit -> actual.add(hit.getId()));
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 7);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    void movedAndRemovedPointsAreReflected() {
+        GeoGridIndex index = new GeoGridIndex(0.01);
+        index.put(1, X, Y);
+        index.put(2, X + 0.001, Y);
+        index.put(1, X + 0.2, Y);
+        assertEquals(1, index.search(X, Y, RADIUS, null, 10).size());
+        index.remove(2);
+        assertTrue(index.search(X, Y, RADIUS, null, 10).isEmpty());
+        assertEquals(1, index.size());
+    }
+
+    static List<double[]> randomPoints(int n, long seed) {
+        Random random = new Random(seed);
+        List<double[]> points = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            points.add(new double[]{X + (random.nextDouble() - 0.5) * 0.2, Y + (random.nextDouble() - 0.5) * 0.2});
+        }
+        return points;
+    }
+
+    private static List<Long> bruteForce(List<double[]> points) {
+        List<GeoGridIndex.Hit> hits = new ArrayList<>();
+        for (int i = 0; i < points.size(); i++) {
+            double d = GeoGridIndex.distance(X, Y, points.get(i)[0], points.get(i)[1]);
+            if (d <= RADIUS) {
+                hits.add(new GeoGridIndex.Hit(i + 1, d));
+            }
+        }
+        return hits.stream()
+                .sorted(Comparator.comparingDouble(GeoGridIndex.Hit::getDistance).thenComparingLong(GeoGridIndex.Hit::getId))
+                .map(GeoGridIndex.Hit::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,24 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeoHashUtilsTest {
+
+    @Test
+    void encodeKnownLocation() {
+        // GeoHash 规范中的示例坐标
+        assertEquals("u4pruydqqvj", GeoHashUtils.encode(10.40744, 57.64911, 11));
+    }
+
+    @Test
+    void boundsContainEncodedPoint() {
+        double x = 120.149993;
+        double y = 30.334229;
+        double[] bounds = GeoHashUtils.bounds(GeoHashUtils.encode(x, y, 6));
+        assertTrue(bounds[0] <= x && x <= bounds[2]);
+        assertTrue(bounds[1] <= y && y <= bounds[3]);
+    }
+}
@@ -0,0 +1,73 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class InvertedIndexTest {
+
+    private static final double[] WEIGHTS = {3, 1};
+
+    @Test
+    void tokenizeProducesCjkBigramsAndWords() {
+        assertEquals(Arrays.asList("103", "茶", "餐", "茶餐", "厅", "餐厅"), InvertedIndex.tokenize("103茶餐厅"));
+        assertEquals(Arrays.asList("kfc", "肯", "德", "肯德"), InvertedIndex.tokenize("KFC 肯德"));
+    }
+
+    @Test
+    void searchRequiresAllTermsAndRanksNameAboveAddress() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, new String[]{"101茶餐厅", "大关路100号"}, WEIGHTS);
+        index.put(2, new String[]{"蔡馬洪涛烤肉", "拱墅区茶餐厅旁"}, WEIGHTS);
+        index.put(3, new String[]{"茶颜悦色", "上塘路"}, WEIGHTS);
+        index.put(4, new String[]{"餐厅", "运河上街"}, WEIGHTS);
+        List<Long> ids = ids(index.search("茶餐厅", null, 10));
+        assertEquals(Arrays.asList(1L, 2L), ids);
+        assertEquals(3, index.search("茶", null, 10).size());
+        assertTrue(index.search("火锅", null, 10).isEmpty());
+    }
+
+    @Test
+    void keysetPagingCoversAllMatches() {
+        InvertedIndex index = new InvertedIndex();
+        for (int i = 1; i <= 50; i++) {
+            index.put(i, new String[]{"第" + i + "家茶餐厅", i % 2 == 0 ? "茶餐厅街" : "大关路"}, WEIGHTS);
+        }
+        List<Long> all = ids(index.search("茶餐厅", null, 100));
+        List<Long> paged = new ArrayList<>();
+        InvertedIndex.Hit after = null;
+        List<InvertedIndex.Hit> page;
+        do {
+            page = index.search("茶餐厅", after, 7);
+            page.forEach(hit -> paged.add(hit.getId()));
+            after = page.isEmpty() ? null : page.get(page.size() - 1);
+        } while (page.size() == 7);
+        assertEquals(50, all.size());
+        assertEquals(all, paged);
+        // 地址中也包含关键字的店铺排在前面
+        assertEquals(0, all.get(0) % 2);
+    }
+
+    @Test
+    void updatedAndRemovedDocumentsAreReflected() {
+        InvertedIndex index = new InvertedIndex();
+        index.put(1, new String[]{"茶餐厅", null}, WEIGHTS);
+        index.put(1, new String[]{"烤肉", null}, WEIGHTS);
+        assertTrue(index.search("茶餐厅", null, 10).isEmpty());
+        assertEquals(Arrays.asList(1L), ids(index.search("烤肉", null, 10)));
+        index.remove(1);
+        assertTrue(index.search("烤肉", null, 10).isEmpty());
+        assertEquals(0, index.terms());
+    }
+
+    private static List<Long> ids(List<InvertedIndex.Hit> hits) {
+        List<Long> ids = new ArrayList<>();
+        hits.forEach(hit -> ids.add(hit.getId()));
+        return ids;
+    }
+}
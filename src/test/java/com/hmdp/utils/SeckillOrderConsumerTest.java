@@ -0,0 +1,107 @@
+package com.hmdp.utils;
+
+import com.hmdp.config.SeckillProperties;
+import com.hmdp.service.IVoucherOrderService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStreamCommands;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_DEAD_STREAM_KEY;
+import static com.hmdp.utils.RedisConstants.SECKILL_ORDER_STREAM_KEY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SeckillOrderConsumerTest {
+
+    private static final RecordId ID = RecordId.of("1-0");
+
+    private final SeckillOrderConsumer consumer = new SeckillOrderConsumer();
+    private final SeckillProperties properties = new SeckillProperties();
+    private final IVoucherOrderService voucherOrderService = mock(IVoucherOrderService.class);
+    private final RedisStreamCommands streamCommands = mock(RedisStreamCommands.class);
+    private StreamOperations<String, Object, Object> streams;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        StringRedisTemplate stringRedisTemplate = mock(StringRedisTemplate.class);
+        streams = mock(StreamOperations.class);
+        when(stringRedisTemplate.opsForStream()).thenReturn(streams);
+        RedisConnection connection = mock(RedisConnection.class);
+        when(connection.streamCommands()).thenReturn(streamCommands);
+        when(streamCommands.xClaimJustId(any(byte[].class), anyString(), anyString(), any(RedisStreamCommands.XClaimOptions.class)))
+                .thenReturn(Collections.singletonList(ID));
+        when(stringRedisTemplate.execute(any(RedisCallback.class)))
+                .thenAnswer(invocation -> ((RedisCallback<?>) invocation.getArgument(0)).doInRedis(connection));
+        Map<Object, Object> value = new HashMap<>();
+        value.put("id", "1");
+        value.put("userId", "2");
+        value.put("voucherId", "3");
+        MapRecord<String, Object, Object> record = StreamRecords.newRecord()
+                .in(SECKILL_ORDER_STREAM_KEY).withId(ID).ofMap(value);
+        when(streams.range(SECKILL_ORDER_STREAM_KEY, Range.closed(ID.getValue(), ID.getValue())))
+                .thenReturn(Collections.singletonList(record));
+        ReflectionTestUtils.setField(consumer, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(consumer, "voucherOrderService", voucherOrderService);
+        ReflectionTestUtils.setField(consumer, "seckillProperties", properties);
+        ReflectionTestUtils.setField(consumer, "running", true);
+    }
+
+    @Test
+    void reclaimRecordsDeliveryCount() {
+        pending(1);
+
+        consumer.reclaim();
+
+        ArgumentCaptor<RedisStreamCommands.XClaimOptions> options = ArgumentCaptor.forClass(RedisStreamCommands.XClaimOptions.class);
+        verify(streamCommands).xClaimJustId(any(byte[].class), anyString(), anyString(), options.capture());
+        assertEquals(2L, options.getValue().getRetryCount());
+        verify(voucherOrderService).creatVoucherOrder(any());
+        verify(streams, never()).add(any());
+    }
+
+    @Test
+    void deadLettersAfterMaxDeliveries() {
+        pending(properties.getStream().getMaxDeliveries());
+
+        consumer.reclaim();
+
+        verify(voucherOrderService, never()).creatVoucherOrder(any());
+        ArgumentCaptor<MapRecord<String, Object, Object>> dead = ArgumentCaptor.forClass(MapRecord.class);
+        verify(streams).add(dead.capture());
+        assertEquals(SECKILL_ORDER_DEAD_STREAM_KEY, dead.getValue().getStream());
+        verify(streams).acknowledge(eq(SECKILL_ORDER_STREAM_KEY), eq(properties.getStream().getGroup()), eq(ID));
+    }
+
+    private void pending(long deliveries) {
+        Duration idle = Duration.ofMillis(properties.getStream().getReclaimIdleMillis() + 1);
+        PendingMessage message = new PendingMessage(ID, Consumer.from(properties.getStream().getGroup(), "consumer-0"), idle, deliveries);
+        when(streams.pending(eq(SECKILL_ORDER_STREAM_KEY), eq(properties.getStream().getGroup()), any(Range.class), anyLong()))
+                .thenReturn(new PendingMessages(properties.getStream().getGroup(), Collections.singletonList(message)));
+    }
+}
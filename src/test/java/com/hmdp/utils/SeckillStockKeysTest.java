@@ -0,0 +1,46 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SeckillStockKeysTest {
+
+    @Test
+    void singleBucketKeepsLegacyKey() {
+        assertEquals(Arrays.asList("seckill:stock:7"), SeckillStockKeys.probeOrder(7L, 1, 42L));
+    }
+
+    @Test
+    void probeOrderStartsAtHomeBucketAndCoversAll() {
+        List<String> order = SeckillStockKeys.probeOrder(7L, 4, 42L);
+        int home = SeckillStockKeys.bucketOf(42L, 4);
+        assertEquals("seckill:stock:7:" + home, order.get(0));
+        assertEquals("seckill:stock:7:" + (home + 1) % 4, order.get(1));
+        assertEquals(new HashSet<>(SeckillStockKeys.keys(7L, 4)), new HashSet<>(order));
+    }
+
+    @Test
+    void consecutiveUsersSpreadAcrossBuckets() {
+        int[] counts = new int[8];
+        for (long userId = 1; userId <= 8000; userId++) {
+            counts[SeckillStockKeys.bucketOf(userId, 8)]++;
+        }
+        for (int count : counts) {
+            assertTrue(count > 800 && count < 1200, Arrays.toString(counts));
+        }
+    }
+
+    @Test
+    void splitDistributesRemainderToFirstBuckets() {
+        assertArrayEquals(new int[]{4, 3, 3}, SeckillStockKeys.split(10, 3));
+        assertArrayEquals(new int[]{10}, SeckillStockKeys.split(10, 1));
+        assertEquals(10, Arrays.stream(SeckillStockKeys.split(10, 16)).sum());
+    }
+}
@@ -0,0 +1,72 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsShareOneLoad() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(pool.submit(() -> flight.execute("cache:shop:1", () -> {
+                loads.incrementAndGet();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return "shop";
+            }, 5, TimeUnit.SECONDS)));
+        }
+        // 等待所有线程进入合并等待
+        Thread.sleep(200);
+        release.countDown();
+        for (Future<String> future : futures) {
+            assertEquals("shop", future.get());
+        }
+        pool.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(0, flight.inFlightCount());
+    }
+
+    @Test
+    void followerTimesOut() throws Exception {
+        SingleFlight<String> flight = new SingleFlight<>();
+        CountDownLatch release = new CountDownLatch(1);
+        Thread leader = new Thread(() -> {
+            try {
+                flight.execute("k", () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "v";
+                }, 1, TimeUnit.SECONDS);
+            } catch (TimeoutException ignored) {
+            }
+        });
+        leader.start();
+        Thread.sleep(100);
+        assertThrows(TimeoutException.class, () -> flight.execute("k", () -> "other", 50, TimeUnit.MILLISECONDS));
+        release.countDown();
+        leader.join();
+    }
+}
@@ -0,0 +1,50 @@
+package com.hmdp.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void burstUpToCapacityThenWait() {
+        TokenBucket bucket = new TokenBucket(3, 10, 0);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(0));
+        }
+        // 每秒 10 个令牌，下一个令牌需要 100ms
+        assertEquals(SECOND / 10, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void refillsOverTimeButNotBeyondCapacity() {
+        TokenBucket bucket = new TokenBucket(2, 10, 0);
+        bucket.tryAcquire(0);
+        bucket.tryAcquire(0);
+        assertEquals(0, bucket.tryAcquire(SECOND / 10));
+        // 空闲很久后最多攒满容量
+        long later = 100 * SECOND;
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void shrinkingCapacityDropsExtraTokens() {
+        TokenBucket bucket = new TokenBucket(100, 100, 0);
+        bucket.resize(1, 1, 0);
+        assertEquals(0, bucket.tryAcquire(0));
+        assertEquals(SECOND, bucket.tryAcquire(0));
+    }
+
+    @Test
+    void zeroRateWaitsOneSecond() {
+        TokenBucket bucket = new TokenBucket(0, 0, 0);
+        assertEquals(SECOND, bucket.tryAcquire(SECOND));
+    }
+}
@@ -0,0 +1,148 @@
+-- 压测使用的 H2 表结构（MySQL 兼容模式），与 db/hmdp.sql 中的表一一对应，去掉了 H2 不支持的语法，不含数据
+CREATE TABLE IF NOT EXISTS `tb_blog` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `shop_id` bigint NOT NULL,
+  `user_id` bigint NOT NULL,
+  `title` varchar(255) NOT NULL,
+  `images` varchar(2048) NOT NULL,
+  `content` varchar(2048) NOT NULL,
+  `liked` int NOT NULL DEFAULT 0,
+  `comments` int NULL DEFAULT NULL,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+CREATE INDEX IF NOT EXISTS `idx_user_id` ON `tb_blog`(`user_id`);
+CREATE INDEX IF NOT EXISTS `idx_liked` ON `tb_blog`(`liked`, `id`);
+
+CREATE TABLE IF NOT EXISTS `tb_blog_comments` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `user_id` bigint NOT NULL,
+  `blog_id` bigint NOT NULL,
+  `parent_id` bigint NOT NULL,
+  `answer_id` bigint NOT NULL,
+  `content` varchar(255) NOT NULL,
+  `liked` int NULL DEFAULT NULL,
+  `status` tinyint NULL DEFAULT NULL,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_follow` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `user_id` bigint NOT NULL,
+  `follow_user_id` bigint NOT NULL,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_seckill_voucher` (
+  `voucher_id` bigint NOT NULL,
+  `stock` int NOT NULL,
+  `buckets` int NOT NULL DEFAULT 1,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `begin_time` timestamp NOT NULL,
+  `end_time` timestamp NOT NULL,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`voucher_id`)
+);
+CREATE INDEX IF NOT EXISTS `idx_begin_time` ON `tb_seckill_voucher`(`begin_time`);
+CREATE INDEX IF NOT EXISTS `idx_end_time` ON `tb_seckill_voucher`(`end_time`);
+
+CREATE TABLE IF NOT EXISTS `tb_shop` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `name` varchar(128) NOT NULL,
+  `type_id` bigint NOT NULL,
+  `images` varchar(1024) NOT NULL,
+  `area` varchar(128) NULL DEFAULT NULL,
+  `address` varchar(255) NOT NULL,
+  `x` double NOT NULL,
+  `y` double NOT NULL,
+  `avg_price` bigint NULL DEFAULT NULL,
+  `sold` int NOT NULL,
+  `comments` int NOT NULL,
+  `score` int NOT NULL,
+  `open_hours` varchar(32) NULL DEFAULT NULL,
+  `create_time` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+CREATE INDEX IF NOT EXISTS `foreign_key_type` ON `tb_shop`(`type_id`);
+
+CREATE TABLE IF NOT EXISTS `tb_shop_type` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `name` varchar(32) NULL DEFAULT NULL,
+  `icon` varchar(255) NULL DEFAULT NULL,
+  `sort` int NULL DEFAULT NULL,
+  `create_time` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_sign` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `user_id` bigint NOT NULL,
+  `year` int NOT NULL,
+  `month` tinyint NOT NULL,
+  `date` date NOT NULL,
+  `is_backup` tinyint NULL DEFAULT NULL,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_user` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `phone` varchar(11) NOT NULL,
+  `password` varchar(128) NULL DEFAULT '',
+  `nick_name` varchar(32) NULL DEFAULT '',
+  `icon` varchar(255) NULL DEFAULT '',
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`),
+  CONSTRAINT `uniqe_key_phone` UNIQUE (`phone`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_user_info` (
+  `user_id` bigint NOT NULL,
+  `city` varchar(64) NULL DEFAULT '',
+  `introduce` varchar(128) NULL DEFAULT NULL,
+  `fans` int NULL DEFAULT 0,
+  `followee` int NULL DEFAULT 0,
+  `gender` tinyint NULL DEFAULT 0,
+  `birthday` date NULL DEFAULT NULL,
+  `credits` int NULL DEFAULT 0,
+  `level` tinyint NULL DEFAULT 0,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`user_id`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_voucher` (
+  `id` bigint NOT NULL AUTO_INCREMENT,
+  `shop_id` bigint NULL DEFAULT NULL,
+  `title` varchar(255) NOT NULL,
+  `sub_title` varchar(255) NULL DEFAULT NULL,
+  `rules` varchar(1024) NULL DEFAULT NULL,
+  `pay_value` bigint NOT NULL,
+  `actual_value` bigint NOT NULL,
+  `type` tinyint NOT NULL DEFAULT 0,
+  `status` tinyint NOT NULL DEFAULT 1,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+
+CREATE TABLE IF NOT EXISTS `tb_voucher_order` (
+  `id` bigint NOT NULL,
+  `user_id` bigint NOT NULL,
+  `voucher_id` bigint NOT NULL,
+  `pay_type` tinyint NOT NULL DEFAULT 1,
+  `status` tinyint NOT NULL DEFAULT 1,
+  `create_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  `pay_time` timestamp NULL DEFAULT NULL,
+  `use_time` timestamp NULL DEFAULT NULL,
+  `refund_time` timestamp NULL DEFAULT NULL,
+  `update_time` timestamp NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`)
+);
+CREATE UNIQUE INDEX IF NOT EXISTS `idx_voucher_user` ON `tb_voucher_order`(`voucher_id`, `user_id`);